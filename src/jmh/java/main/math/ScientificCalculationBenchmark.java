@@ -0,0 +1,67 @@
+package main.math;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScientificCalculationBenchmark {
+    private static final String SHALLOW = "sin(x)^2 + rate * x - 3 / (x + 1)";
+    private static final String DEEP = nested(64);
+
+    private ScientificCalculation.Function shallow;
+    private ScientificCalculation.Function deep;
+    private CompiledExpression compiled;
+    private double x = 0.5;
+
+    @Setup
+    public void setup() {
+        shallow = new ScientificCalculation.Function(SHALLOW.replace("x", "2").replace("rate", "3"));
+        deep = new ScientificCalculation.Function(DEEP);
+        compiled = new ScientificCalculation.Function(SHALLOW).compile();
+        compiled.jitThreshold(-1);
+    }
+
+    //tokenization
+    @Benchmark
+    public ScientificCalculation.Function tokenizeShallow() {
+        return new ScientificCalculation.Function(SHALLOW);
+    }
+    @Benchmark
+    public ScientificCalculation.Function tokenizeDeep() {
+        return new ScientificCalculation.Function(DEEP);
+    }
+
+    //parse + solve, the per-call path
+    @Benchmark
+    public double solveShallow() {
+        return new ScientificCalculation.Calculator(shallow).solve();
+    }
+    @Benchmark
+    public double solveDeep() {
+        return new ScientificCalculation.Calculator(deep).solve();
+    }
+
+    //compiled, interpreted tier
+    @Benchmark
+    public double evaluateCompiled() {
+        x += 1e-9;
+        return compiled.evaluate(x, 3);
+    }
+
+    // (1 + (2 + (3 + ... sqrt(n) ...))) * 2 nested depth times
+    private static String nested(int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= depth; i++) {
+            sb.append("(").append(i).append(i % 2 == 0 ? " + " : " * ");
+        }
+        sb.append("sqrt ").append(depth);
+        sb.append(")".repeat(depth));
+        return sb.toString();
+    }
+}
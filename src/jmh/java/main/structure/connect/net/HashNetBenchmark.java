@@ -0,0 +1,77 @@
+package main.structure.connect.net;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashNetBenchmark {
+    @Param({"16", "1024", "65536"})
+    private int depth;
+    //same operations through the Net interface on each implementation
+    @Param({"HashNet", "IntNet", "ConcurrentHashNet", "RadixNet"})
+    private String implementation;
+
+    private Net<Integer> net;
+    private Net.Node<Integer> deepest;
+    private Integer[] path;
+
+    @Setup
+    public void setup() {
+        net = create();
+        deepest = insert(net, depth);
+        path = new Integer[depth];
+        for (int i = 0; i < depth; i++) { path[i] = i % 7; }
+        net.insert(Arrays.copyOf(path, depth / 2));
+    }
+
+    //one new path of depth nodes, every step a fresh node
+    @Benchmark
+    public Net.Node<Integer> insert() {
+        return insert(create(), depth);
+    }
+
+    //every step hits an existing child
+    @Benchmark
+    public Net.Node<Integer> lookup() {
+        Net.Node<Integer> node = net.origin();
+        for (int i = 0; i < depth; i++) {
+            node = node.getChild(i % 7);
+        }
+        return node;
+    }
+
+    //walks the whole path, the match is halfway
+    @Benchmark
+    public Net.Node<Integer> longestPrefixMatch() {
+        return net.longestPrefixMatch(path);
+    }
+
+    @Benchmark
+    public List<Integer> backtrack() {
+        return deepest.backtrack();
+    }
+
+    private Net<Integer> create() {
+        return switch (implementation) {
+            case "IntNet" -> new IntNet();
+            case "ConcurrentHashNet" -> new ConcurrentHashNet<>();
+            case "RadixNet" -> new RadixNet<>();
+            default -> new HashNet<>();
+        };
+    }
+    private static Net.Node<Integer> insert(Net<Integer> net, int depth) {
+        Net.Node<Integer> node = net.origin();
+        for (int i = 0; i < depth; i++) {
+            node = node.extend(i % 7);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,92 @@
+package main.structure.tree;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+@State(Scope.Benchmark)
+public class ConnectedBenchmark {
+    private static final int FANOUT = 8;
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private Connected<Integer> tree;
+    private List<Predicate<Integer>> filters;
+    private List<Predicate<Integer>> keyFilters;
+
+    @Setup
+    public void setup() {
+        tree = build(size);
+        filters = List.of(v -> v % 2 == 0, v -> v % 3 != 0, v -> true);
+        keyFilters = List.of(KeyFilter.range(0, size / 4), KeyFilter.range(size / 8, size / 2), KeyFilter.range(0, null));
+        tree.preOrder().forEach(c -> c.index(KeyFilter.identity()));
+    }
+
+    //build by adopting one node at a time under an existing parent
+    @Benchmark
+    public Connected<Integer> adopt() {
+        return build(size);
+    }
+
+    @Benchmark
+    public void childLabor(Blackhole bh) {
+        tree.childLabor(bh::consume);
+    }
+
+    @Benchmark
+    public List<Connected<Integer>> multiLayerFilter() {
+        return tree.multiLayerFilter(filters, false);
+    }
+    //same shape of query answered from the child indexes
+    @Benchmark
+    public List<Connected<Integer>> multiLayerKeyFilter() {
+        return tree.multiLayerFilter(keyFilters, false);
+    }
+
+    /**
+     * graft a prebuilt subtree of the same size under a fresh root
+     */
+    @State(Scope.Thread)
+    public static class Graft {
+        private Connected<Integer> root;
+        private Connected<Integer> subtree;
+
+        @Setup(Level.Invocation)
+        public void setup(ConnectedBenchmark b) {
+            root = new Connected<>(-1);
+            subtree = build(b.size);
+        }
+    }
+    @Benchmark
+    public Connected<Integer> adoptSubtree(Graft graft) {
+        return graft.root.adopt(graft.subtree);
+    }
+
+    // breadth first, FANOUT children per node
+    static Connected<Integer> build(int size) {
+        Connected<Integer> root = new Connected<>(0);
+        Queue<Connected<Integer>> open = new ArrayDeque<>();
+        open.add(root);
+        int count = 1;
+        while (count < size) {
+            Connected<Integer> parent = open.remove();
+            for (int i = 0; i < FANOUT && count < size; i++) {
+                Connected<Integer> child = new Connected<>(count++);
+                parent.adopt(child);
+                open.add(child);
+            }
+        }
+        return root;
+    }
+}
@@ -0,0 +1,215 @@
+package main.index;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ordered container of Indexed elements where shifting the index of a whole range costs O(log n).
+ * kept as an implicit treap: a node's position is the size of everything left of it,
+ * and an offset waits on the root of the subtree it covers until a read walks past it.
+ * an element's own index() is only current once it came out of get, search or the iterator,
+ * don't read it through an older reference after an offset
+ * @param <E> element
+ */
+public class IndexedSequence<E extends Indexed> implements Iterable<E> {
+    private Node<E> root = null;
+
+    public IndexedSequence() {}
+    public IndexedSequence(Collection<? extends E> elements) {
+        elements.forEach(this::add);
+    }
+
+    //getter
+    public int size() { return size(root); }
+    public boolean isEmpty() { return root == null; }
+    //end
+
+    /**
+     * @return element at position with every pending offset applied
+     */
+    public E get(int position) {
+        Objects.checkIndex(position, size());
+        Node<E> n = root;
+        while (true) {
+            push(n);
+            int left = size(n.left);
+            if (position < left) {
+                n = n.left;
+            } else if (position > left) {
+                position -= left + 1;
+                n = n.right;
+            } else {
+                return n.element;
+            }
+        }
+    }
+    public int index(int position) {
+        return get(position).index();
+    }
+
+    //set
+    public void add(E element) {
+        root = merge(root, new Node<>(element));
+    }
+    /**
+     * element goes in at position, the ones from position on move one place right, their indexes stay
+     */
+    public void add(int position, E element) {
+        Objects.checkIndex(position, size() + 1);
+        Node<E>[] parts = split(root, position);
+        root = merge(merge(parts[0], new Node<>(element)), parts[1]);
+    }
+    public E remove(int position) {
+        Objects.checkIndex(position, size());
+        Node<E>[] parts = split(root, position);
+        Node<E>[] rest = split(parts[1], 1);
+        push(rest[0]);
+        root = merge(parts[0], rest[1]);
+        return rest[0].element;
+    }
+
+    /**
+     * add offset to the index of every element in positions [from, to)
+     */
+    public void offset(int from, int to, int offset) {
+        Objects.checkFromToIndex(from, to, size());
+        if (from == to || offset == 0) { return; }
+        Node<E>[] right = split(root, to);
+        Node<E>[] middle = split(right[0], from);
+        middle[1].pending += offset;
+        root = merge(merge(middle[0], middle[1]), right[1]);
+    }
+    /**
+     * add offset to every element from position on, what inserting before them usually needs
+     */
+    public void offset(int from, int offset) {
+        offset(from, size(), offset);
+    }
+    /**
+     * add offset to every element, constant time
+     */
+    public void rebase(int offset) {
+        if (root != null) { root.pending += offset; }
+    }
+
+    /**
+     * binary search by index, the elements must be in ascending index order
+     * @return position of an element with that index, else -(insertion point) - 1 like Arrays.binarySearch
+     */
+    public int search(int index) {
+        Node<E> n = root;
+        int base = 0;
+        while (n != null) {
+            push(n);
+            int current = n.element.index();
+            if (current < index) {
+                base += size(n.left) + 1;
+                n = n.right;
+            } else if (current > index) {
+                n = n.left;
+            } else {
+                return base + size(n.left);
+            }
+        }
+        return -(base + 1);
+    }
+
+    /**
+     * in position order, every element is brought up to date on the way
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private final Deque<Node<E>> stack = new ArrayDeque<>();
+
+            {
+                descend(root);
+            }
+
+            private void descend(Node<E> n) {
+                for (; n != null; n = n.left) {
+                    push(n);
+                    stack.push(n);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+            @Override
+            public E next() {
+                if (stack.isEmpty()) { throw new NoSuchElementException(); }
+                Node<E> n = stack.pop();
+                descend(n.right);
+                return n.element;
+            }
+        };
+    }
+
+    //static
+    private static int size(Node<?> n) {
+        return n == null ? 0 : n.size;
+    }
+    // hand the pending offset to this element and the two subtrees
+    private static void push(Node<?> n) {
+        if (n.pending == 0) { return; }
+        n.element.offset(n.pending);
+        if (n.left != null) { n.left.pending += n.pending; }
+        if (n.right != null) { n.right.pending += n.pending; }
+        n.pending = 0;
+    }
+    private static <E extends Indexed> Node<E> merge(Node<E> a, Node<E> b) {
+        if (a == null) { return b; }
+        if (b == null) { return a; }
+        if (a.priority > b.priority) {
+            push(a);
+            a.right = merge(a.right, b);
+            a.size = size(a.left) + size(a.right) + 1;
+            return a;
+        }
+        push(b);
+        b.left = merge(a, b.left);
+        b.size = size(b.left) + size(b.right) + 1;
+        return b;
+    }
+    /**
+     * @return the first count positions and the rest
+     */
+    private static <E extends Indexed> Node<E>[] split(Node<E> n, int count) {
+        if (n == null) { return pair(); }
+        push(n);
+        if (size(n.left) >= count) {
+            Node<E>[] parts = split(n.left, count);
+            n.left = parts[1];
+            n.size = size(n.left) + size(n.right) + 1;
+            parts[1] = n;
+            return parts;
+        }
+        Node<E>[] parts = split(n.right, count - size(n.left) - 1);
+        n.right = parts[0];
+        n.size = size(n.left) + size(n.right) + 1;
+        parts[0] = n;
+        return parts;
+    }
+    // both halves start empty
+    @SuppressWarnings("unchecked")
+    private static <E extends Indexed> Node<E>[] pair() {
+        return (Node<E>[]) new Node<?>[2];
+    }
+
+    //class
+    private static class Node<E extends Indexed> {
+        private final E element;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private int size = 1;
+        //offset not yet applied to this subtree
+        private int pending = 0;
+        private Node<E> left;
+        private Node<E> right;
+
+        public Node(E element) {
+            this.element = element;
+        }
+    }
+}
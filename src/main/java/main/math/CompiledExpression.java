@@ -0,0 +1,468 @@
+package main.math;
+
+import main.math.ScientificCalculation.MergeOperator;
+import main.math.ScientificCalculation.UniOperator;
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * flat postfix program lowered from a {@link ScientificCalculation.Function}
+ * evaluated over a primitive operand stack, repeated evaluation does not allocate
+ */
+public class CompiledExpression {
+    //opcodes
+    static final byte CONSTANT = 0;
+    static final byte UNI = 1;
+    static final byte MERGE = 2;
+    static final byte NEGATE = 3;
+    static final byte VARIABLE = 4;
+    //end
+
+    private static final UniOperator[] UNIS = UniOperator.values();
+    private static final MergeOperator[] MERGES = MergeOperator.values();
+    private static final double[] NO_BINDING = new double[0];
+    //rows per block in batch evaluation, keeps the operand columns in cache
+    static final int BLOCK = 1024;
+    //rows per parallel task
+    public static final int DEFAULT_CHUNK = BLOCK * 16;
+    //evaluations before a kernel is generated
+    public static final int DEFAULT_JIT_THRESHOLD = 10_000;
+
+    //fields
+    private final byte[] ops;
+    private final int[] args;
+    private final double[] constants;
+    private final String[] variables;
+    private final int stackSize;
+    //scratch, one per thread so a shared instance can be evaluated concurrently
+    private final ThreadLocal<Frame> frame;
+    //tiering, interpreted until evaluated jitThreshold times then a generated kernel takes over
+    private volatile Kernel kernel = null;
+    private volatile int jitThreshold = DEFAULT_JIT_THRESHOLD;
+    private int calls = 0;
+    //end
+
+    CompiledExpression(byte[] ops, int[] args, double[] constants, String[] variables, int stackSize) {
+        this.ops = ops;
+        this.args = args;
+        this.constants = constants;
+        this.variables = variables;
+        this.stackSize = stackSize;
+        this.frame = ThreadLocal.withInitial(() -> new Frame(stackSize));
+    }
+
+    //getter
+    public int length() { return ops.length; }
+    public int stackSize() { return stackSize; }
+    public int jitThreshold() { return jitThreshold; }
+    public boolean isPromoted() { return kernel != null; }
+    public List<String> variables() { return List.of(variables); }
+    /**
+     * @param name variable name
+     * @return binding slot of the variable, -1 if the expression doesn't use it
+     */
+    public int slot(String name) {
+        for (int i = 0; i < variables.length; i++) {
+            if (variables[i].equals(name)) { return i; }
+        }
+        return -1;
+    }
+    //end
+
+    //setter
+    /**
+     * @param jitThreshold evaluations before promotion, negative to stay interpreted
+     */
+    public void jitThreshold(int jitThreshold) { this.jitThreshold = jitThreshold; }
+    //end
+
+    /**
+     * generate the kernel now instead of waiting for the threshold
+     * @return true if evaluation now goes through the kernel,
+     * false if the program can't be generated and stays interpreted
+     */
+    public synchronized boolean promote() {
+        if (kernel == null) {
+            try {
+                kernel = KernelGenerator.generate(ops, args, constants, stackSize);
+            } catch (RuntimeException e) {
+                kernel = null;
+            }
+            if (kernel == null) { jitThreshold = -1; }
+        }
+        return kernel != null;
+    }
+
+    public double evaluate() {
+        return evaluate(NO_BINDING);
+    }
+    /**
+     * @param bindings variable values, indexed by {@link #slot(String)}
+     * @return result
+     */
+    public double evaluate(double... bindings) {
+        if (bindings.length < variables.length) {
+            throw new IllegalArgumentException("expected %d bindings, got %d"
+                    .formatted(variables.length, bindings.length));
+        }
+        return invoke(bindings);
+    }
+
+    /**
+     * view of a expression with at most one variable as a plain function of that variable
+     * @return function, allocation free per call
+     */
+    public DoubleUnaryOperator asUnaryOperator() {
+        if (variables.length > 1) {
+            throw new IllegalStateException("expression has %d variables: %s"
+                    .formatted(variables.length, Arrays.toString(variables)));
+        }
+        return x -> {
+            Frame f = frame.get();
+            f.single[0] = x;
+            return invoke(f.single);
+        };
+    }
+
+    /**
+     * evaluate over columns of bindings, one operator at a time over a whole block of rows
+     * @param inputColumns one column per variable slot, each at least as long as out
+     * @param out result of every row
+     */
+    public void evaluate(double[][] inputColumns, double[] out) {
+        checkColumns(inputColumns, out.length);
+        batch(inputColumns, out, 0, out.length);
+    }
+
+    /**
+     * {@link #evaluate(double[][], double[])} split into chunks on the common pool
+     */
+    public void evaluateParallel(double[][] inputColumns, double[] out) {
+        evaluateParallel(inputColumns, out, ForkJoinPool.commonPool(), DEFAULT_CHUNK);
+    }
+    /**
+     * {@link #evaluate(double[][], double[])} split into chunks, each chunk evaluated as one task
+     * @param executor runs the chunks, a ForkJoinPool splits them recursively,
+     *                 anything else gets one task per chunk
+     * @param chunkSize rows per task
+     */
+    public void evaluateParallel(double[][] inputColumns, double[] out, Executor executor, int chunkSize) {
+        if (chunkSize < 1) { throw new IllegalArgumentException("chunk size: " + chunkSize); }
+        checkColumns(inputColumns, out.length);
+        if (out.length <= chunkSize) {
+            batch(inputColumns, out, 0, out.length);
+        } else if (executor instanceof ForkJoinPool pool) {
+            pool.invoke(new Chunk(inputColumns, out, 0, out.length, chunkSize));
+        } else {
+            // rounded up without going past Integer.MAX_VALUE on the way
+            CompletableFuture<?>[] tasks = new CompletableFuture<?>[(out.length - 1) / chunkSize + 1];
+            for (int i = 0; i < tasks.length; i++) {
+                int from = i * chunkSize;
+                int to = from + Math.min(chunkSize, out.length - from);
+                tasks[i] = CompletableFuture.runAsync(() -> batch(inputColumns, out, from, to), executor);
+            }
+            CompletableFuture.allOf(tasks).join();
+        }
+    }
+
+    private void checkColumns(double[][] columns, int rows) {
+        if (columns.length < variables.length) {
+            throw new IllegalArgumentException("expected %d columns, got %d"
+                    .formatted(variables.length, columns.length));
+        }
+        for (int i = 0; i < variables.length; i++) {
+            if (columns[i].length < rows) {
+                throw new IllegalArgumentException("column %d (%s) has %d rows, expected %d"
+                        .formatted(i, variables[i], columns[i].length, rows));
+            }
+        }
+    }
+
+    private void batch(double[][] columns, double[] out, int from, int to) {
+        double[][] stack = frame.get().columns();
+        // stepped by length, start + BLOCK could wrap for rows near Integer.MAX_VALUE
+        for (int start = from, length; start < to; start += length) {
+            length = Math.min(BLOCK, to - start);
+            int top = 0;
+            for (int pc = 0; pc < ops.length; pc++) {
+                switch (ops[pc]) {
+                    case CONSTANT -> Arrays.fill(stack[top++], 0, length, constants[args[pc]]);
+                    case VARIABLE -> System.arraycopy(columns[args[pc]], start, stack[top++], 0, length);
+                    case UNI -> apply(UNIS[args[pc]], stack[top-1], length);
+                    case MERGE -> {
+                        top--;
+                        apply(MERGES[args[pc]], stack[top-1], stack[top], length);
+                    }
+                    case NEGATE -> {
+                        double[] column = stack[top-1];
+                        for (int j = 0; j < length; j++) { column[j] = -column[j]; }
+                    }
+                    default -> throw new IllegalStateException("unknown opcode: " + ops[pc]);
+                }
+            }
+            System.arraycopy(stack[0], 0, out, start, length);
+        }
+    }
+
+    private double invoke(double[] bindings) {
+        Kernel k = kernel;
+        if (k != null) { return k.evaluate(bindings); }
+        int threshold = jitThreshold;
+        // racy count, promote() itself is synchronized and idempotent
+        if (threshold >= 0 && ++calls >= threshold && promote()) {
+            return kernel.evaluate(bindings);
+        }
+        return run(frame.get().stack, bindings);
+    }
+
+    private double run(double[] stack, double[] bindings) {
+        int top = 0;
+        for (int pc = 0; pc < ops.length; pc++) {
+            switch (ops[pc]) {
+                case CONSTANT -> stack[top++] = constants[args[pc]];
+                case VARIABLE -> stack[top++] = bindings[args[pc]];
+                case UNI -> stack[top-1] = UNIS[args[pc]].applyAsDouble(stack[top-1]);
+                case MERGE -> {
+                    double right = stack[--top];
+                    stack[top-1] = MERGES[args[pc]].applyAsDouble(stack[top-1], right);
+                }
+                case NEGATE -> stack[top-1] = -stack[top-1];
+                default -> throw new IllegalStateException("unknown opcode: " + ops[pc]);
+            }
+        }
+        return stack[0];
+    }
+
+    @Override public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int pc = 0; pc < ops.length; pc++) {
+            if (pc > 0) { sb.append(' '); }
+            switch (ops[pc]) {
+                case CONSTANT -> sb.append(constants[args[pc]]);
+                case VARIABLE -> sb.append(variables[args[pc]]);
+                case UNI -> sb.append(UNIS[args[pc]].syntax()[0]);
+                case MERGE -> sb.append(MERGES[args[pc]].syntax()[0]);
+                case NEGATE -> sb.append("neg");
+                default -> sb.append('?');
+            }
+        }
+        return sb.toString();
+    }
+
+    //static
+    // one loop per operator so plain arithmetic stays a simple, vectorizable loop
+    private static void apply(UniOperator op, double[] column, int length) {
+        for (int j = 0; j < length; j++) { column[j] = op.applyAsDouble(column[j]); }
+    }
+    private static void apply(MergeOperator op, double[] left, double[] right, int length) {
+        switch (op) {
+            case ADD -> { for (int j = 0; j < length; j++) { left[j] += right[j]; } }
+            case MINUS -> { for (int j = 0; j < length; j++) { left[j] -= right[j]; } }
+            case MULTIPLY -> { for (int j = 0; j < length; j++) { left[j] *= right[j]; } }
+            case DIVIDE -> { for (int j = 0; j < length; j++) { left[j] /= right[j]; } }
+            case MODULUS -> { for (int j = 0; j < length; j++) { left[j] %= right[j]; } }
+            case POWER -> { for (int j = 0; j < length; j++) { left[j] = FastMath.pow(left[j], right[j]); } }
+        }
+    }
+
+    //class
+    /**
+     * generated form of a program, implemented by a hidden class per expression
+     */
+    public interface Kernel {
+        double evaluate(double[] bindings);
+    }
+
+    private class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[][] columns;
+        private final double[] out;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        public Chunk(double[][] columns, double[] out, int from, int to, int chunkSize) {
+            this.columns = columns;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                batch(columns, out, from, to);
+                return;
+            }
+            // split on a chunk boundary so every leaf is a whole chunk
+            int middle = from + (((to - from) / chunkSize + 1) / 2) * chunkSize;
+            invokeAll(new Chunk(columns, out, from, middle, chunkSize),
+                    new Chunk(columns, out, middle, to, chunkSize));
+        }
+    }
+
+    private static class Frame {
+        private final double[] stack;
+        private final double[] single = new double[1];
+        private double[][] columns = null;
+
+        public Frame(int stackSize) {
+            this.stack = new double[stackSize];
+        }
+
+        public double[][] columns() {
+            if (columns == null) {
+                columns = new double[stack.length][BLOCK];
+            }
+            return columns;
+        }
+    }
+
+    /**
+     * emits postfix instructions while tracking operand stack depth,
+     * peephole optimizing as it goes:
+     * constant subexpressions are folded, x+0 / 0+x / x-0 / x*1 / 1*x / x/1 / x^1 are dropped
+     * (x+0 may turn a -0.0 result into 0.0) and abs abs, abs neg, neg neg chains collapse
+     */
+    static class Assembler {
+        private byte[] ops = new byte[16];
+        private int[] args = new int[16];
+        private int size = 0;
+        private double[] constants = new double[8];
+        private int constantCount = 0;
+        //first instruction of every value currently on the operand stack
+        private int[] starts = new int[8];
+        private int depth = 0;
+        private int maxDepth = 0;
+
+        public void constant(double value) {
+            if (constantCount == constants.length) {
+                constants = Arrays.copyOf(constants, constantCount * 2);
+            }
+            constants[constantCount] = value;
+            emit(CONSTANT, constantCount++, 1);
+        }
+        public void variable(int slot) {
+            emit(VARIABLE, slot, 1);
+        }
+        public void uni(UniOperator op) {
+            require(1);
+            if (topIsConstant()) {
+                constants[args[size-1]] = op.applyAsDouble(constants[args[size-1]]);
+                return;
+            }
+            if (op == UniOperator.ABSOLUTE) {
+                if (ops[size-1] == UNI && args[size-1] == UniOperator.ABSOLUTE.ordinal()) { return; }
+                if (ops[size-1] == NEGATE) { size--; }
+            }
+            emit(UNI, op.ordinal(), 0);
+        }
+        public void merge(MergeOperator op) {
+            require(2);
+            int right = starts[depth-1];
+            int left = starts[depth-2];
+            boolean leftConstant = right - left == 1 && ops[left] == CONSTANT;
+            boolean rightConstant = topIsConstant();
+            if (leftConstant && rightConstant) {
+                constants[args[left]] = op.applyAsDouble(constants[args[left]], constants[args[right]]);
+                dropTop();
+            } else if (rightConstant && isRightIdentity(op, constants[args[right]])) {
+                dropTop();
+            } else if (leftConstant && isLeftIdentity(op, constants[args[left]])) {
+                System.arraycopy(ops, left + 1, ops, left, size - left - 1);
+                System.arraycopy(args, left + 1, args, left, size - left - 1);
+                size--;
+                depth--;
+            } else {
+                emit(MERGE, op.ordinal(), -1);
+            }
+        }
+        public void negate() {
+            require(1);
+            if (topIsConstant()) {
+                constants[args[size-1]] = -constants[args[size-1]];
+            } else if (ops[size-1] == NEGATE) {
+                size--;
+            } else {
+                emit(NEGATE, 0, 0);
+            }
+        }
+
+        private boolean topIsConstant() {
+            return size - starts[depth-1] == 1 && ops[size-1] == CONSTANT;
+        }
+        //drop the top value, only used when it's a single constant
+        private void dropTop() {
+            size--;
+            depth--;
+        }
+        private static boolean isRightIdentity(MergeOperator op, double value) {
+            return switch (op) {
+                case ADD, MINUS -> value == 0;
+                case MULTIPLY, DIVIDE, POWER -> value == 1;
+                case MODULUS -> false;
+            };
+        }
+        private static boolean isLeftIdentity(MergeOperator op, double value) {
+            return switch (op) {
+                case ADD -> value == 0;
+                case MULTIPLY -> value == 1;
+                default -> false;
+            };
+        }
+
+        private void require(int operands) throws NumberFormatException {
+            if (depth < operands) {
+                throw new NumberFormatException("operator missing operand");
+            }
+        }
+        private void emit(byte op, int arg, int stackEffect) {
+            require(1 - stackEffect);
+            if (size == ops.length) {
+                ops = Arrays.copyOf(ops, size * 2);
+                args = Arrays.copyOf(args, size * 2);
+            }
+            if (stackEffect > 0) {
+                if (depth == starts.length) {
+                    starts = Arrays.copyOf(starts, depth * 2);
+                }
+                starts[depth] = size;
+            }
+            ops[size] = op;
+            args[size++] = arg;
+            depth += stackEffect;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        public CompiledExpression build(String[] variables) throws NumberFormatException {
+            if (depth != 1) {
+                throw new NumberFormatException("expression leaves %d values".formatted(depth));
+            }
+            // renumber the constant pool, folding leaves unused entries behind
+            double[] pool = new double[constantCount];
+            int[] args = Arrays.copyOf(this.args, size);
+            int used = 0;
+            for (int pc = 0; pc < size; pc++) {
+                if (ops[pc] == CONSTANT) {
+                    pool[used] = constants[args[pc]];
+                    args[pc] = used++;
+                }
+            }
+            return new CompiledExpression(
+                    Arrays.copyOf(ops, size),
+                    args,
+                    Arrays.copyOf(pool, used),
+                    variables,
+                    maxDepth);
+        }
+    }
+}
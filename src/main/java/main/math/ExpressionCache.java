@@ -0,0 +1,130 @@
+package main.math;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * bounded LRU of compiled expressions keyed by normalized source text,
+ * split into independently locked segments so threads only contend on the same segment
+ */
+public class ExpressionCache {
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    //fields
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    //end
+
+    public ExpressionCache(int capacity) {
+        this(capacity, DEFAULT_SEGMENTS);
+    }
+    /**
+     * @param capacity max number of cached expressions, spread evenly over the segments
+     * @param concurrency number of segments, rounded down to a power of 2 and never more than capacity,
+     *                    so the segment capacities add up to capacity exactly
+     */
+    public ExpressionCache(int capacity, int concurrency) {
+        if (capacity < 1) { throw new IllegalArgumentException("capacity: " + capacity); }
+        int count = Integer.highestOneBit(Math.max(1, Math.min(concurrency, capacity)));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment((capacity + count - 1 - i) / count);
+        }
+    }
+
+    //getter
+    public long hits() { return hits.sum(); }
+    public long misses() { return misses.sum(); }
+    public long evictions() { return evictions.sum(); }
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) { size += segment.size(); }
+        }
+        return size;
+    }
+    //end
+
+    /**
+     * cached compile, parsing happens outside the segment lock
+     * @param source expression text
+     * @return compiled expression, shared between every caller of the same text
+     */
+    public CompiledExpression compile(String source) throws NumberFormatException {
+        String key = normalize(source);
+        Segment segment = segmentFor(key);
+        CompiledExpression cached;
+        synchronized (segment) { cached = segment.get(key); }
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        CompiledExpression compiled = new ScientificCalculation.Function(key).compile();
+        synchronized (segment) {
+            cached = segment.putIfAbsent(key, compiled);
+        }
+        return cached == null ? compiled : cached;
+    }
+
+    public void invalidate(String source) {
+        String key = normalize(source);
+        Segment segment = segmentFor(key);
+        synchronized (segment) { segment.remove(key); }
+    }
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) { segment.clear(); }
+        }
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    //static
+    /**
+     * trim and collapse every whitespace run to one space,
+     * space still matters between words so it isn't removed
+     */
+    public static String normalize(String source) {
+        StringBuilder sb = new StringBuilder(source.length());
+        boolean space = false;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+            } else {
+                if (space && sb.length() > 0) { sb.append(' '); }
+                space = false;
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    //class
+    private class Segment extends LinkedHashMap<String, CompiledExpression> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        public Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
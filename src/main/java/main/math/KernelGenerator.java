@@ -0,0 +1,259 @@
+package main.math;
+
+import main.math.ScientificCalculation.MergeOperator;
+import main.math.ScientificCalculation.UniOperator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * writes a compiled expression as a straight-line jvm method in a hidden class,
+ * the whole expression then becomes one method the jit can inline and optimize
+ */
+final class KernelGenerator {
+    private static final int VERSION = 60;
+    private static final String NAME = "main/math/GeneratedKernel";
+    private static final String KERNEL = "main/math/CompiledExpression$Kernel";
+    private static final String FAST_MATH = "org/apache/commons/math3/util/FastMath";
+    private static final int MAX_CODE = 65535;
+
+    //jvm opcodes
+    private static final int ICONST_0 = 0x03;
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int DALOAD = 0x31;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DREM = 0x73;
+    private static final int DNEG = 0x77;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    //end
+
+    //constant pool
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int poolCount = 1;
+    //end
+
+    private KernelGenerator() {}
+
+    /**
+     * @return kernel, null if the program doesn't fit in one jvm method
+     */
+    static CompiledExpression.Kernel generate(byte[] ops, int[] args, double[] constants, int stackSize) {
+        try {
+            byte[] bytes = new KernelGenerator().classFile(ops, args, constants, stackSize);
+            if (bytes == null) { return null; }
+            MethodHandles.Lookup hidden = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (CompiledExpression.Kernel) hidden
+                    .findConstructor(hidden.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("failed to define kernel", e);
+        }
+    }
+
+    private byte[] classFile(byte[] ops, int[] args, double[] constants, int stackSize) throws IOException {
+        ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+        DataOutputStream code = new DataOutputStream(codeBytes);
+        for (int pc = 0; pc < ops.length; pc++) {
+            switch (ops[pc]) {
+                case CompiledExpression.CONSTANT -> constant(code, constants[args[pc]]);
+                case CompiledExpression.VARIABLE -> {
+                    code.writeByte(ALOAD_1);
+                    integer(code, args[pc]);
+                    code.writeByte(DALOAD);
+                }
+                case CompiledExpression.UNI -> {
+                    code.writeByte(INVOKESTATIC);
+                    code.writeShort(methodRef(FAST_MATH, method(UniOperator.values()[args[pc]]), "(D)D"));
+                }
+                case CompiledExpression.MERGE -> merge(code, MergeOperator.values()[args[pc]]);
+                case CompiledExpression.NEGATE -> code.writeByte(DNEG);
+                default -> throw new IllegalStateException("unknown opcode: " + ops[pc]);
+            }
+        }
+        code.writeByte(DRETURN);
+        if (codeBytes.size() > MAX_CODE) { return null; }
+
+        int thisClass = classRef(NAME);
+        int superClass = classRef("java/lang/Object");
+        int kernel = classRef(KERNEL);
+        int objectInit = methodRef("java/lang/Object", "<init>", "()V");
+        int init = utf8("<init>");
+        int initDesc = utf8("()V");
+        int evaluate = utf8("evaluate");
+        int evaluateDesc = utf8("([D)D");
+        int codeName = utf8("Code");
+        if (poolCount > 0xffff) { return null; }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream cf = new DataOutputStream(out);
+        cf.writeInt(0xCAFEBABE);
+        cf.writeShort(0);
+        cf.writeShort(VERSION);
+        cf.writeShort(poolCount);
+        poolBytes.writeTo(cf);
+        cf.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+        cf.writeShort(thisClass);
+        cf.writeShort(superClass);
+        cf.writeShort(1);
+        cf.writeShort(kernel);
+        cf.writeShort(0); // fields
+        cf.writeShort(2); // methods
+        method(cf, init, initDesc, codeName, 1, 1, new byte[] {
+                (byte) ALOAD_0,
+                (byte) INVOKESPECIAL, (byte) (objectInit >> 8), (byte) objectInit,
+                (byte) RETURN});
+        // every value is a double (2 slots), plus array ref and index while loading a variable
+        method(cf, evaluate, evaluateDesc, codeName, stackSize * 2 + 2, 2, codeBytes.toByteArray());
+        cf.writeShort(0); // attributes
+        return out.toByteArray();
+    }
+
+    private static void method(DataOutputStream cf, int name, int desc, int codeName,
+                               int maxStack, int maxLocals, byte[] code) throws IOException {
+        cf.writeShort(0x0001); // public
+        cf.writeShort(name);
+        cf.writeShort(desc);
+        cf.writeShort(1);
+        cf.writeShort(codeName);
+        cf.writeInt(12 + code.length);
+        cf.writeShort(maxStack);
+        cf.writeShort(maxLocals);
+        cf.writeInt(code.length);
+        cf.write(code);
+        cf.writeShort(0); // exception table
+        cf.writeShort(0); // attributes
+    }
+
+    private void constant(DataOutputStream code, double value) throws IOException {
+        long bits = Double.doubleToRawLongBits(value);
+        if (bits == Double.doubleToRawLongBits(0.0)) {
+            code.writeByte(DCONST_0);
+        } else if (bits == Double.doubleToRawLongBits(1.0)) {
+            code.writeByte(DCONST_1);
+        } else {
+            code.writeByte(LDC2_W);
+            code.writeShort(doubleConstant(value));
+        }
+    }
+    private void integer(DataOutputStream code, int value) throws IOException {
+        if (value <= 5) {
+            code.writeByte(ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            code.writeByte(BIPUSH);
+            code.writeByte(value);
+        } else if (value <= Short.MAX_VALUE) {
+            code.writeByte(SIPUSH);
+            code.writeShort(value);
+        } else {
+            code.writeByte(LDC_W);
+            code.writeShort(intConstant(value));
+        }
+    }
+    private void merge(DataOutputStream code, MergeOperator op) throws IOException {
+        switch (op) {
+            case ADD -> code.writeByte(DADD);
+            case MINUS -> code.writeByte(DSUB);
+            case MULTIPLY -> code.writeByte(DMUL);
+            case DIVIDE -> code.writeByte(DDIV);
+            case MODULUS -> code.writeByte(DREM);
+            case POWER -> {
+                code.writeByte(INVOKESTATIC);
+                code.writeShort(methodRef(FAST_MATH, "pow", "(DD)D"));
+            }
+        }
+    }
+    // same FastMath functions the UniOperator constants are built from
+    private static String method(UniOperator op) {
+        return switch (op) {
+            case ABSOLUTE -> "abs";
+            case SQRT -> "sqrt";
+            case LOG -> "log10";
+            case NATURAL_LOG -> "log";
+            case SIN -> "sin";
+            case COS -> "cos";
+            case TAN -> "tan";
+            case ARC_SIN -> "asin";
+            case ARC_COS -> "acos";
+            case ARC_TAN -> "atan";
+            case HYPERBOLIC_SIN -> "sinh";
+            case HYPERBOLIC_COS -> "cosh";
+            case HYPERBOLIC_TAN -> "tanh";
+            case HYPERBOLIC_ARC_SIN -> "asinh";
+            case HYPERBOLIC_ARC_COS -> "acosh";
+            case HYPERBOLIC_ARC_TAN -> "atanh";
+        };
+    }
+
+    //constant pool entries, deduplicated
+    private int utf8(String s) {
+        return entry("U" + s, 1, out -> { out.writeByte(1); out.writeUTF(s); });
+    }
+    private int classRef(String internalName) {
+        int name = utf8(internalName);
+        return entry("C" + internalName, 1, out -> { out.writeByte(7); out.writeShort(name); });
+    }
+    private int methodRef(String owner, String name, String desc) {
+        int clazz = classRef(owner);
+        int n = utf8(name);
+        int d = utf8(desc);
+        int nameAndType = entry("N" + name + desc, 1, out -> {
+            out.writeByte(12);
+            out.writeShort(n);
+            out.writeShort(d);
+        });
+        return entry("M" + owner + "." + name + desc, 1, out -> {
+            out.writeByte(10);
+            out.writeShort(clazz);
+            out.writeShort(nameAndType);
+        });
+    }
+    private int intConstant(int value) {
+        return entry("I" + value, 1, out -> { out.writeByte(3); out.writeInt(value); });
+    }
+    private int doubleConstant(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        // a double takes 2 pool slots
+        return entry("D" + bits, 2, out -> { out.writeByte(6); out.writeLong(bits); });
+    }
+
+    private int entry(String key, int slots, PoolWriter writer) {
+        Integer index = entries.get(key);
+        if (index != null) { return index; }
+        try {
+            writer.write(pool);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int i = poolCount;
+        poolCount += slots;
+        entries.put(key, i);
+        return i;
+    }
+
+    private interface PoolWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
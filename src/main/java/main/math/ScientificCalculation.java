@@ -5,63 +5,136 @@ import org.apache.commons.math3.util.FastMath;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
-import java.util.function.UnaryOperator;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 
 public class ScientificCalculation {
     public static class Function {
         private final List<Component> content = new ArrayList<>();
+        private final Map<String, Variable> variables = new LinkedHashMap<>();
 
         public Function(String input) throws NumberFormatException {
-            String pattern = "(%s)|(%s)|(%s)|(%s)|(%s)".formatted(
-                    Number.PATTERN,
-                    Constant.PATTERN,
-                    UniOperator.PATTERN,
-                    MergeOperator.PATTERN,
-                    SpecialCharacter.PATTERN);
-            Matcher m = Pattern.compile(pattern).matcher(input.replaceAll("\\s", ""));
-            
-            while (m.find()) {
-                if (m.group(1) != null) {
-                    content().add(new Number(Double.parseDouble(m.group(1))));
-                } else if (m.group(2) != null) {
-                    content().add(Arrays.stream(Constant.values())
-                            .filter(v -> List.of(v.syntax()).contains(m.group(2)))
-                            .findFirst().orElseThrow().value());
-                } else if (m.group(3) != null) {
-                    content().add(Arrays.stream(UniOperator.values())
-                            .filter(v -> List.of(v.syntax()).contains(m.group(3)))
-                            .findFirst().orElseThrow());
-                } else if (m.group(4) != null) {
-                    content().add(Arrays.stream(MergeOperator.values())
-                            .filter(v -> List.of(v.syntax()).contains(m.group(4)))
-                            .findFirst().orElseThrow());
-                } else if (m.group(5) != null) {
-                    content().add(Arrays.stream(SpecialCharacter.values())
-                            .filter(v -> v.c.equals(m.group(5)))
-                            .findFirst().orElseThrow());
+            int length = input.length();
+            int i = 0;
+            while (i < length) {
+                char c = input.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (Keywords.isDigit(c)) {
+                    i = number(input, i);
+                } else if (Keywords.isWordStart(c)) {
+                    i = word(input, i);
                 } else {
-                    throw new NumberFormatException();
+                    Component symbol = Keywords.symbol(c);
+                    if (symbol == null) {
+                        throw new NumberFormatException("unexpected character '%c' at %d".formatted(c, i));
+                    }
+                    content.add(symbol);
+                    i++;
+                }
+            }
+        }
+
+        /**
+         * @return index after the number
+         */
+        private int number(String input, int start) {
+            int length = input.length();
+            int i = start;
+            long mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            for (; i < length && Keywords.isDigit(input.charAt(i)); i++, digits++) {
+                mantissa = mantissa * 10 + (input.charAt(i) - '0');
+            }
+            if (i + 1 < length && input.charAt(i) == '.' && Keywords.isDigit(input.charAt(i + 1))) {
+                for (i++; i < length && Keywords.isDigit(input.charAt(i)); i++, digits++, scale++) {
+                    mantissa = mantissa * 10 + (input.charAt(i) - '0');
                 }
             }
+            // both operand exact as double, one division is correctly rounded
+            content.add(new Number(digits <= 15 && scale < Keywords.POWER_OF_TEN.length ?
+                    mantissa / Keywords.POWER_OF_TEN[scale] :
+                    Double.parseDouble(input.substring(start, i))));
+            return i;
+        }
+
+        /**
+         * keyword first, anything else is a variable,
+         * word mergeOp (e.g. x) only count as operator right after an operand.
+         * the letters in front of a digit are matched on their own, so "sin3" is sin 3 and "2times3" is 2 times 3,
+         * only when they aren't a keyword do the digits join them into a variable name like "x1"
+         * @return index after the word
+         */
+        private int word(String input, int start) {
+            int length = input.length();
+            int state = Keywords.ROOT;
+            int i = start;
+            for (; i < length && Keywords.isWordStart(input.charAt(i)); i++) {
+                state = Keywords.step(state, input.charAt(i));
+            }
+            Component keyword = Keywords.match(state);
+            if (keyword instanceof Constant constant) {
+                content.add(constant.value());
+                return i;
+            }
+            if (keyword instanceof UniOperator
+                    || (keyword instanceof MergeOperator && afterOperand())) {
+                content.add(keyword);
+                return i;
+            }
+            while (i < length && Keywords.isWordPart(input.charAt(i))) { i++; }
+            content.add(variable(input, start, i));
+            return i;
+        }
+        private Variable variable(String input, int start, int end) {
+            int length = end - start;
+            for (Variable v : variables.values()) {
+                if (v.name().length() == length && input.regionMatches(start, v.name(), 0, length)) {
+                    return v;
+                }
+            }
+            Variable v = new Variable(input.substring(start, end), variables.size());
+            variables.put(v.name(), v);
+            return v;
+        }
+        private boolean afterOperand() {
+            if (content.isEmpty()) { return false; }
+            Component last = content.get(content.size()-1);
+            return last instanceof Number || last instanceof Variable || last == SpecialCharacter.CLOSE_PARENTHESES;
         }
 
         public List<Component> content() {
             return content;
         }
+        /**
+         * @return variable names, index in the list is the binding slot
+         */
+        public List<String> variables() {
+            return List.copyOf(variables.keySet());
+        }
+
+        /**
+         * lower this function once into a reusable program
+         * @return program that evaluates without re-parsing or allocating
+         */
+        public CompiledExpression compile() throws NumberFormatException {
+            return new Calculator(this).compiled();
+        }
     }
 
     public static class Calculator {
-        private final Stack topStack;
+        private final CompiledExpression compiled;
         
         public Calculator(Function function) throws NumberFormatException {
-            topStack = stacking(function.content());
+            compiled = lower(stacking(function.content()), function.variables());
         }
 
+        // getter
+        public CompiledExpression compiled() { return compiled; }
+
         // the end
-        public double solve() { return Stack.eval(topStack.components()).number(); }
+        public double solve() { return compiled.evaluate(); }
 
         // static
         private static Stack stacking(List<Component> allComponents) throws NumberFormatException {
@@ -82,113 +155,96 @@ public class ScientificCalculation {
             return stackBuilder.build();
         }
 
+        private static CompiledExpression lower(Stack topStack, List<String> variables) throws NumberFormatException {
+            CompiledExpression.Assembler assembler = new CompiledExpression.Assembler();
+            new Lowering(topStack.components(), assembler).all();
+            return assembler.build(variables.toArray(String[]::new));
+        }
+        // operators by the word they were written as, for error messages
+        private static String text(Component c) {
+            if (c instanceof UniOperator op) { return op.syntax()[0]; }
+            if (c instanceof MergeOperator op) { return op.syntax()[0]; }
+            return String.valueOf(c);
+        }
+
         // class
-        private static class Stack implements Component {
+        /**
+         * precedence climbing over one stack, emitting postfix into the assembler
+         * uniOp binds to the operand right after it, mergeOp follows priority (power is right associative),
+         * a leading minus/add at operand position is a sign
+         */
+        private static class Lowering {
             private final List<Component> components;
+            private final CompiledExpression.Assembler out;
+            private int pos = 0;
 
-            public Stack(List<Component> components) {
+            public Lowering(List<Component> components, CompiledExpression.Assembler out) {
                 this.components = components;
+                this.out = out;
             }
 
-            // getter
-            public List<Component> components() {
-                return components;
+            public void all() throws NumberFormatException {
+                expression(0);
+                if (pos < components.size()) {
+                    throw new NumberFormatException("unexpected component: %s".formatted(text(components.get(pos))));
+                }
             }
 
-            // static
-            public static Number eval(List<Component> components) throws NumberFormatException {
-                // handle subStack
-                components.replaceAll(c -> {
-                    if (c instanceof Stack s) {
-                        return eval(s.components);
-                    }
-                    return c;
-                });
-
-                // handle one number
-                if (components.size() == 1 && components.get(0) instanceof Number n) { return n; }
-
-                // handle uniOp
-                List<UniOperator> unis = new ArrayList<>();
-                for (int i = 0; i < components.size(); i++) {
-                    Component c = components.get(i);
-                    if (c instanceof UniOperator) {
-                        unis.add((UniOperator) components.remove(i));
-                        if (i < components.size()) {
-                            // break point
-                            if (components.get(i) instanceof Number n) {
-                                Collections.reverse(unis);
-                                components.set(i, new PendingNumber(n, unis));
-                                unis.clear();
-                            } else if (!(components.get(i) instanceof UniOperator)) {
-                                throw new NumberFormatException("uniOp pointing to invalid object: type: %s || value: %s"
-                                        .formatted(components.get(i).getClass().getSimpleName(), components.get(i))
-                                );
-                            }
-                        } else {
-                            throw new NumberFormatException("uniOp pointing to null");
-                        }
-                    }
+            private void expression(int minPriority) throws NumberFormatException {
+                operand();
+                while (pos < components.size()
+                        && components.get(pos) instanceof MergeOperator op
+                        && op.priority() >= minPriority) {
+                    pos++;
+                    expression(op == MergeOperator.POWER ? op.priority() : op.priority() + 1);
+                    out.merge(op);
                 }
+            }
 
-                // handle mergeOp
-                Map<MergeOperator, Number> pending = new LinkedHashMap<>();
-                List<Number> numbers = components.stream()
-                        .<Number>mapMulti((c, oc) -> {
-                            if (c instanceof Number n) { oc.accept(n); }
-                        }).collect(Collectors.toCollection(ArrayList::new));
-                List<MergeOperator> ops = components.stream()
-                        .<MergeOperator>mapMulti((c, oc) -> {
-                            if (c instanceof MergeOperator n) { oc.accept(n); }
-                        }).collect(Collectors.toCollection(ArrayList::new));
-                if (numbers.size()-1 != ops.size()) { throw new NumberFormatException(
-                        "number size: %d, operation size: %d".formatted(numbers.size(), ops.size())
-                ); }
-                for (int i = 0; i < ops.size(); i++) {
-                    MergeOperator op = ops.get(i);
-                    // find cutting point (priority > next op's priority),
-                    // backtrack till list's head
-                    // won't get any cutting point cause those are cleared at last cycle
-                    if (i+1 >= ops.size() || op.priority() > ops.get(i+1).priority()) {
-                        List<MergeOperator> subList = ops.subList(0, i+1);
-                        ops = ops.subList(i, ops.size());
-                        i = 0;
-                        for (int j = subList.size()-1; j >= 0 ; j--) {
-                            pending.put(subList.get(j), numbers.remove(j));
-                        }
-                        numbers.set(0, new PendingNumber(numbers.get(0), pending));
-                        pending.clear();
-                    }
+            private void operand() throws NumberFormatException {
+                if (pos >= components.size()) { throw new NumberFormatException("missing operand"); }
+                Component c = components.get(pos++);
+                if (c instanceof Number n) {
+                    out.constant(n.number());
+                } else if (c instanceof Variable v) {
+                    out.variable(v.slot());
+                } else if (c instanceof Stack s) {
+                    new Lowering(s.components(), out).all();
+                } else if (c instanceof UniOperator op) {
+                    operand();
+                    out.uni(op);
+                } else if (c == MergeOperator.MINUS) {
+                    operand();
+                    out.negate();
+                } else if (c == MergeOperator.ADD) {
+                    operand();
+                } else {
+                    throw new NumberFormatException("operand expected, got: %s".formatted(text(c)));
                 }
+            }
+        }
 
-                // only number is allowed at the end
-                if (numbers.size() > 1) { throw new NumberFormatException(); }
-                return numbers.get(0);
+        private static class Stack implements Component {
+            private final List<Component> components;
+
+            public Stack(List<Component> components) {
+                this.components = components;
             }
 
-            // class
-            public static class PendingNumber extends Number {
-                public PendingNumber(Number base, List<UniOperator> ops) {
-                    super(apply(base, ops));
-                }
-                private static double apply(Number base, List<UniOperator> ops) {
-                    for (UniOperator op : ops) {
-                        op.operation().accept(base);
-                    }
-                    return base.number();
-                }
+            // getter
+            public List<Component> components() {
+                return components;
+            }
 
-                public PendingNumber(Number base, Map<MergeOperator, Number> ops) {
-                    super(apply(base, ops));
-                }
-                private static double apply(Number base, Map<MergeOperator, Number> ops) {
-                    for (Map.Entry<MergeOperator, Number> entry : ops.entrySet()) {
-                        entry.getKey().operation().accept(base, entry.getValue());
-                    }
-                    return base.number();
-                }
+            // source text, parentheses included
+            @Override
+            public String toString() {
+                StringJoiner text = new StringJoiner(" ", "(", ")");
+                for (Component c : components) { text.add(text(c)); }
+                return text.toString();
             }
 
+            // class
             public static class Builder {
                 private final List<Component> components = new ArrayList<>();
                 private Builder subBuilder = null;
@@ -230,37 +286,50 @@ public class ScientificCalculation {
     }
 
     public static class Number implements Component {
-        public static final String PATTERN = "(?:(?<!\\d)-)?\\d+(?:\\.\\d+)?";
-
-        private Double number;
+        private double number;
 
-        public Number(Double number) {
+        public Number(double number) {
             this.number(number);
         }
         public Number(String strNumber) throws NumberFormatException {
             this.number(Double.parseDouble(strNumber));
         }
 
-        public void edit(UnaryOperator<Double> operation) {
-            number(operation.apply(number()));
+        public void edit(DoubleUnaryOperator operation) {
+            number(operation.applyAsDouble(number()));
         }
 
-        public Double number() {
+        public double number() {
             return number;
         }
-        public void number(Double number) {
+        public void number(double number) {
             this.number = number;
         }
 
         @Override
-        public String toString() { return number.toString(); }
+        public String toString() { return Double.toString(number); }
+    }
+
+    public static class Variable implements Component {
+        private final String name;
+        private final int slot;
+
+        public Variable(String name, int slot) {
+            this.name = name;
+            this.slot = slot;
+        }
+
+        public String name() { return name; }
+        public int slot() { return slot; }
+
+        @Override
+        public String toString() { return name; }
     }
 
     public enum SpecialCharacter implements Component {
         OPEN_PARENTHESES("("),
         CLOSE_PARENTHESES(")");
 
-        public static final String PATTERN = "\\(|\\)";
         public final String c;
         SpecialCharacter(String c) {
             this.c = c;
@@ -274,74 +343,77 @@ public class ScientificCalculation {
         POSITIVE_INFINITY(Double.POSITIVE_INFINITY, "inf"),
         NEGATIVE_INFINITY(Double.NEGATIVE_INFINITY, "ninf");
 
-        public static final String PATTERN = Arrays.stream(Constant.values())
-                .flatMap(v -> Arrays.stream(v.syntax()))
-                .collect(Collectors.joining("|"));
-        private final Number value;
+        private final double value;
         private final String[] syntax;
 
         Constant(double value, String... syntax) {
-            this.value = new Number(value);
+            this.value = value;
             this.syntax = syntax;
         }
         
         public String[] syntax() { return syntax; }
-        public Number value() { return value; }
+        public double number() { return value; }
+        /**
+         * @return new Number every call, editing it doesn't touch the constant
+         */
+        public Number value() { return new Number(value); }
 
     }
 
-    public enum UniOperator implements Component {
-        ABSOLUTE(num -> num.edit(FastMath::abs), "abs"),
-        SQRT(num -> num.edit(FastMath::sqrt), "sqrt"),
-        LOG(num -> num.edit(FastMath::log10), "log"),
-        NATURAL_LOG(num -> num.edit(FastMath::log), "ln"),
-        SIN(num -> num.edit(FastMath::sin), "sin"),
-        COS(num -> num.edit(FastMath::cos), "cos"),
-        TAN(num -> num.edit(FastMath::tan), "tan"),
-        ARC_SIN(num -> num.edit(FastMath::asin), "asin", "arcsin"),
-        ARC_COS(num -> num.edit(FastMath::acos), "acos", "arccos"),
-        ARC_TAN(num -> num.edit(FastMath::atan), "atan", "arctan"),
-        HYPERBOLIC_SIN(num -> num.edit(FastMath::sinh), "sinh"),
-        HYPERBOLIC_COS(num -> num.edit(FastMath::cosh), "cosh"),
-        HYPERBOLIC_TAN(num -> num.edit(FastMath::tanh), "tanh"),
-        HYPERBOLIC_ARC_SIN(num -> num.edit(FastMath::asinh), "asinh"),
-        HYPERBOLIC_ARC_COS(num -> num.edit(FastMath::acosh), "acosh"),
-        HYPERBOLIC_ARC_TAN(num -> num.edit(FastMath::atanh), "atanh");
-
-        public static final String PATTERN = Arrays.stream(UniOperator.values())
-                .flatMap(v -> Arrays.stream(v.syntax))
-                .collect(Collectors.joining("|"));
+    public enum UniOperator implements Component, DoubleUnaryOperator {
+        ABSOLUTE(FastMath::abs, "abs"),
+        SQRT(FastMath::sqrt, "sqrt"),
+        LOG(FastMath::log10, "log"),
+        NATURAL_LOG(FastMath::log, "ln"),
+        SIN(FastMath::sin, "sin"),
+        COS(FastMath::cos, "cos"),
+        TAN(FastMath::tan, "tan"),
+        ARC_SIN(FastMath::asin, "asin", "arcsin"),
+        ARC_COS(FastMath::acos, "acos", "arccos"),
+        ARC_TAN(FastMath::atan, "atan", "arctan"),
+        HYPERBOLIC_SIN(FastMath::sinh, "sinh"),
+        HYPERBOLIC_COS(FastMath::cosh, "cosh"),
+        HYPERBOLIC_TAN(FastMath::tanh, "tanh"),
+        HYPERBOLIC_ARC_SIN(FastMath::asinh, "asinh"),
+        HYPERBOLIC_ARC_COS(FastMath::acosh, "acosh"),
+        HYPERBOLIC_ARC_TAN(FastMath::atanh, "atanh");
+
+        private final DoubleUnaryOperator function;
         private final Consumer<Number> operation;
         private final String[] syntax;
 
-        UniOperator(Consumer<Number> operation, String... syntax) {
-            this.operation = operation;
+        UniOperator(DoubleUnaryOperator function, String... syntax) {
+            this.function = function;
+            this.operation = num -> num.edit(function);
             this.syntax = syntax;
         }
 
         public String[] syntax() { return syntax; }
         public Consumer<Number> operation() { return operation; }
 
+        @Override
+        public double applyAsDouble(double operand) {
+            return function.applyAsDouble(operand);
+        }
+
     }
 
-    public enum MergeOperator implements Component {
-        ADD((n1, n2) -> n1.edit(d -> d + n2.number()), 1, "+", "add"),
-        MINUS((n1, n2) -> n1.edit(d -> d - n2.number()), 1, "-", "minus"),
-        MULTIPLY((n1, n2) -> n1.edit(d -> d * n2.number()), 2, "*", "x", "times"),
-        DIVIDE((n1, n2) -> n1.edit(d -> d / n2.number()), 2, "/", "divide"),
-        MODULUS((n1, n2) -> n1.edit(d -> d % n2.number()), 2, "%", "mod"),
-        POWER((n1, n2) -> n1.edit(d -> FastMath.pow(n2.number(), d)), 3, "^", "pow");
-
-        public static final String PATTERN = Arrays.stream(MergeOperator.values())
-                .flatMap(v -> Arrays.stream(v.syntax))
-                .map(v -> v.replaceAll("\\W.*", "\\\\$0"))
-                .collect(Collectors.joining("|"));
+    public enum MergeOperator implements Component, DoubleBinaryOperator {
+        ADD((d1, d2) -> d1 + d2, 1, "+", "add"),
+        MINUS((d1, d2) -> d1 - d2, 1, "-", "minus"),
+        MULTIPLY((d1, d2) -> d1 * d2, 2, "*", "x", "times"),
+        DIVIDE((d1, d2) -> d1 / d2, 2, "/", "divide"),
+        MODULUS((d1, d2) -> d1 % d2, 2, "%", "mod"),
+        POWER(FastMath::pow, 3, "^", "pow");
+
+        private final DoubleBinaryOperator function;
         private final BiConsumer<Number, Number> operation;
         private final int priority;
         private final String[] syntax;
 
-        MergeOperator(BiConsumer<Number, Number> operation, int priority, String... syntax) {
-            this.operation = operation;
+        MergeOperator(DoubleBinaryOperator function, int priority, String... syntax) {
+            this.function = function;
+            this.operation = (n1, n2) -> n1.number(function.applyAsDouble(n1.number(), n2.number()));
             this.priority = priority;
             this.syntax = syntax;
         }
@@ -352,10 +424,93 @@ public class ScientificCalculation {
             return operation;
         }
 
+        @Override
+        public double applyAsDouble(double left, double right) {
+            return function.applyAsDouble(left, right);
+        }
+
         public int priority() {
             return priority;
         }
     }
 
+    /**
+     * lookup tables for the lexer, keyword trie over every syntax() word
+     */
+    private static final class Keywords {
+        private static final int ROOT = 0;
+        private static final int ALPHABET = 26;
+        private static final double[] POWER_OF_TEN = {
+                1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+                1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+        };
+        private static final Component[] SYMBOLS = new Component[128];
+
+        // trie, transitions flattened as state * ALPHABET + letter, 0 = no transition
+        private static final int[] NEXT;
+        private static final Component[] MATCH;
+
+        static {
+            Builder trie = new Builder();
+            for (Constant v : Constant.values()) { trie.add(v, v.syntax()); }
+            for (UniOperator v : UniOperator.values()) { trie.add(v, v.syntax()); }
+            for (MergeOperator v : MergeOperator.values()) { trie.add(v, v.syntax()); }
+            for (SpecialCharacter v : SpecialCharacter.values()) { SYMBOLS[v.c.charAt(0)] = v; }
+            NEXT = Arrays.copyOf(trie.next, trie.states * ALPHABET);
+            MATCH = Arrays.copyOf(trie.match, trie.states);
+        }
+
+        public static int step(int state, char c) {
+            if (state < 0 || c < 'a' || c > 'z') { return -1; }
+            int n = NEXT[state * ALPHABET + (c - 'a')];
+            return n == 0 ? -1 : n;
+        }
+        public static Component match(int state) {
+            return state < 0 ? null : MATCH[state];
+        }
+        public static Component symbol(char c) {
+            return c < SYMBOLS.length ? SYMBOLS[c] : null;
+        }
+
+        public static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+        public static boolean isWordStart(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+        }
+        public static boolean isWordPart(char c) {
+            return isWordStart(c) || isDigit(c);
+        }
+
+        // only used while the class initializes, the tables are trimmed copies of its arrays
+        private static final class Builder {
+            private int[] next = new int[ALPHABET * 64];
+            private Component[] match = new Component[64];
+            private int states = 1;
+
+            private void add(Component c, String... syntax) {
+                for (String word : syntax) {
+                    if (word.length() == 1 && !isWordStart(word.charAt(0))) {
+                        SYMBOLS[word.charAt(0)] = c;
+                        continue;
+                    }
+                    int state = ROOT;
+                    for (int i = 0; i < word.length(); i++) {
+                        int slot = state * ALPHABET + (word.charAt(i) - 'a');
+                        if (next[slot] == 0) {
+                            if (states == match.length) {
+                                next = Arrays.copyOf(next, next.length * 2);
+                                match = Arrays.copyOf(match, match.length * 2);
+                            }
+                            next[slot] = states++;
+                        }
+                        state = next[slot];
+                    }
+                    match[state] = c;
+                }
+            }
+        }
+    }
+
     private interface Component {}
 }
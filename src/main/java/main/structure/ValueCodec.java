@@ -0,0 +1,46 @@
+package main.structure;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * turns values into bytes and back for the binary structure files
+ * @param <T> value
+ */
+public interface ValueCodec<T> {
+    /**
+     * @param value never null, nulls are marked outside the codec
+     */
+    void encode(T value, DataOutput out) throws IOException;
+    /**
+     * @param in positioned at the start of the value, big endian
+     */
+    T decode(ByteBuffer in);
+
+    ValueCodec<String> STRING = new ValueCodec<>() {
+        @Override public void encode(String value, DataOutput out) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        @Override public String decode(ByteBuffer in) {
+            byte[] bytes = new byte[in.getInt()];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+    ValueCodec<Integer> INTEGER = new ValueCodec<>() {
+        @Override public void encode(Integer value, DataOutput out) throws IOException { out.writeInt(value); }
+        @Override public Integer decode(ByteBuffer in) { return in.getInt(); }
+    };
+    ValueCodec<Long> LONG = new ValueCodec<>() {
+        @Override public void encode(Long value, DataOutput out) throws IOException { out.writeLong(value); }
+        @Override public Long decode(ByteBuffer in) { return in.getLong(); }
+    };
+    ValueCodec<Double> DOUBLE = new ValueCodec<>() {
+        @Override public void encode(Double value, DataOutput out) throws IOException { out.writeDouble(value); }
+        @Override public Double decode(ByteBuffer in) { return in.getDouble(); }
+    };
+}
@@ -0,0 +1,56 @@
+package main.structure.connect.net;
+
+/**
+ * net keyed by char without boxing, see PrimitiveNet
+ */
+public class CharNet extends PrimitiveNet<Character> {
+    private final CharNode origin = new CharNode(null, 0);
+
+    @Override
+    public CharNode origin() {
+        return origin;
+    }
+
+    //typed paths, nothing boxed and nothing allocated on lookups
+    public CharNode insert(CharSequence path) {
+        CharNode node = origin;
+        for (int i = 0; i < path.length(); i++) { node = node.extend(path.charAt(i)); }
+        node.terminal(true);
+        return node;
+    }
+    public CharNode find(CharSequence path) {
+        CharNode node = origin;
+        for (int i = 0; i < path.length() && node != null; i++) { node = node.getChild(path.charAt(i)); }
+        return node;
+    }
+    public boolean contains(CharSequence path) {
+        CharNode node = find(path);
+        return node != null && node.isTerminal();
+    }
+    public CharNode longestPrefixMatch(CharSequence path) {
+        CharNode node = origin;
+        CharNode match = node.isTerminal() ? node : null;
+        for (int i = 0; i < path.length(); i++) {
+            node = node.getChild(path.charAt(i));
+            if (node == null) { break; }
+            if (node.isTerminal()) { match = node; }
+        }
+        return match;
+    }
+
+    public static class CharNode extends PrimitiveNode<Character> {
+        private CharNode(CharNode parent, long key) {
+            super(parent, key);
+        }
+
+        public char key() { return (char) rawKey(); }
+        public CharNode getChild(char key) { return (CharNode) find(key); }
+        public CharNode extend(char key) { return (CharNode) add(key); }
+        @Override
+        public CharNode parent() { return (CharNode) super.parent(); }
+
+        @Override Character box(long key) { return (char) key; }
+        @Override long unbox(Character value) { return value; }
+        @Override CharNode create(long key) { return new CharNode(this, key); }
+    }
+}
@@ -0,0 +1,75 @@
+package main.structure.connect.net;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HashNet that can be extended from several threads while others read.
+ * getChild and children never lock, extend only locks one bin of one node when the child is new,
+ * two threads extending with the same value get the same child.
+ * children() is weakly consistent, it may or may not show children added while iterating.
+ * values aren't null, ConcurrentHashMap doesn't take null keys
+ */
+public class ConcurrentHashNet<T> implements Net<T> {
+    private final Node<T> origin = new ConcurrentNode<>(null, null);
+
+    @Override
+    public Node<T> origin() {
+        return origin;
+    }
+
+    private static class ConcurrentNode<T> extends ConcurrentHashMap<T, Node<T>> implements Node<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final Node<T> parent;
+        private volatile T value;
+        private volatile boolean terminal = false;
+
+        public ConcurrentNode(Node<T> parent, T value) {
+            this.parent = parent;
+            this.value = value;
+        }
+
+        @Override
+        public Node<T> parent() {
+            return parent;
+        }
+
+        @Override
+        public T value() {
+            return value;
+        }
+        @Override
+        public void value(T value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean isStart() { return parent == null; }
+        @Override
+        public boolean isEnd() { return isEmpty(); }
+        @Override
+        public boolean isTerminal() { return terminal; }
+        @Override
+        public void terminal(boolean terminal) { this.terminal = terminal; }
+
+        @Override
+        public Collection<Node<T>> children() {
+            return values();
+        }
+        @Override
+        public Node<T> getChild(T value) {
+            return value == null ? null : get(value);
+        }
+        @Override
+        public Node<T> extend(T value) {
+            // plain read first, most extends walk children that already exist
+            Node<T> child = get(value);
+            return child != null ? child : computeIfAbsent(value, v -> new ConcurrentNode<>(this, v));
+        }
+
+        // compared by identity, map equality would walk the whole subtree while it's changing
+        @Override public boolean equals(Object o) { return this == o; }
+        @Override public int hashCode() { return System.identityHashCode(this); }
+    }
+}
@@ -0,0 +1,347 @@
+package main.structure.connect.net;
+
+import main.structure.ValueCodec;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * read only net minimized into a DAWG (identical subtrees stored once) and kept in a mapped file.
+ * the heap only holds the distinct values, states and edges are read in place from the mapping,
+ * so it opens instantly and processes mapping the same file share the page cache.
+ * layout, big endian:
+ * header (magic, version, state count, edge count, symbol count, start state, position of the symbol table),
+ * first edge per state (count + 1, the top bit marks a state where an inserted path ends),
+ * edge symbols, sorted within each state, edge targets, symbol table (a presence byte then the codec bytes per value).
+ * a state can be reached along several paths, so nodes are cursors that remember the path they came down
+ */
+public class DawgNet<T> implements Net<T> {
+    private static final int MAGIC = 0x44415747; // DAWG
+    private static final int VERSION = 1;
+    private static final int HEADER = 32;
+    private static final int TERMINAL = 0x80000000;
+
+    //fields
+    private final int states;
+    private final int edges;
+    //first edge per state, TERMINAL bit included
+    private final IntBuffer first;
+    private final IntBuffer symbols;
+    private final IntBuffer targets;
+    private final List<T> values;
+    private final Map<T, Integer> symbolOf;
+    private final Cursor origin;
+    //end
+
+    private DawgNet(int states, int edges, int start, IntBuffer first, IntBuffer symbols, IntBuffer targets, List<T> values) {
+        this.states = states;
+        this.edges = edges;
+        this.first = first;
+        this.symbols = symbols;
+        this.targets = targets;
+        this.values = values;
+        this.symbolOf = new HashMap<>(values.size() * 2);
+        for (int i = 0; i < values.size(); i++) { symbolOf.put(values.get(i), i); }
+        this.origin = new Cursor(null, -1, start);
+    }
+
+    @Override
+    public Node<T> origin() {
+        return origin;
+    }
+
+    //getter
+    public int stateCount() { return states; }
+    public int edgeCount() { return edges; }
+    //end
+
+    //static
+    /**
+     * minimize the inserted paths of net and write them to path
+     * @return number of states written, at most the number of nodes in net
+     */
+    public static <T> int freeze(Net<T> net, Path path, ValueCodec<? super T> codec) throws IOException {
+        Map<T, Integer> symbolOf = new HashMap<>();
+        List<T> values = new ArrayList<>();
+        // a state is its end mark and its sorted (symbol, target) pairs, equal signatures are one state
+        Map<Signature, Integer> canonical = new HashMap<>();
+        List<int[]> signatures = new ArrayList<>();
+        int start = -1;
+
+        Deque<Frame<T>> stack = new ArrayDeque<>();
+        stack.push(new Frame<>(net.origin()));
+        while (!stack.isEmpty()) {
+            Frame<T> frame = stack.peek();
+            if (frame.children.hasNext()) {
+                stack.push(new Frame<>(frame.children.next()));
+                continue;
+            }
+            stack.pop();
+            int[] signature = frame.signature();
+            int state = canonical.computeIfAbsent(new Signature(signature), k -> {
+                signatures.add(signature);
+                return signatures.size() - 1;
+            });
+            if (stack.isEmpty()) {
+                start = state;
+            } else {
+                T value = frame.node.value();
+                Integer symbol = symbolOf.get(value);
+                if (symbol == null) {
+                    symbol = values.size();
+                    symbolOf.put(value, symbol);
+                    values.add(value);
+                }
+                stack.peek().add(symbol, state);
+            }
+        }
+
+        int n = signatures.size();
+        int[] first = new int[n + 1];
+        int e = 0;
+        for (int s = 0; s < n; s++) {
+            int[] signature = signatures.get(s);
+            first[s] = e | (signature[0] == 1 ? TERMINAL : 0);
+            e += (signature.length - 1) / 2;
+        }
+        first[n] = e;
+        int[] edgeSymbols = new int[e];
+        int[] edgeTargets = new int[e];
+        for (int s = 0, i = 0; s < n; s++) {
+            int[] signature = signatures.get(s);
+            for (int j = 1; j < signature.length; j += 2, i++) {
+                edgeSymbols[i] = signature[j];
+                edgeTargets[i] = signature[j + 1];
+            }
+        }
+
+        ByteArrayOutputStream symbolBytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(symbolBytes);
+        for (T value : values) {
+            if (value == null) {
+                out.writeByte(0);
+            } else {
+                out.writeByte(1);
+                codec.encode(value, out);
+            }
+        }
+        out.flush();
+
+        long body = 4L * (n + 1) + 8L * e;
+        if (HEADER + body > Integer.MAX_VALUE) { throw new IOException("net too large to freeze into one mapping"); }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (HEADER + body));
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(e).putInt(values.size()).putInt(start)
+                .putLong(HEADER + body);
+        IntBuffer ints = buffer.asIntBuffer();
+        ints.put(first).put(edgeSymbols).put(edgeTargets);
+        buffer.rewind();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, buffer, 0);
+            writeFully(channel, ByteBuffer.wrap(symbolBytes.toByteArray()), HEADER + body);
+        }
+        return n;
+    }
+
+    /**
+     * map a frozen net read only
+     */
+    public static <T> DawgNet<T> map(Path path, ValueCodec<? extends T> codec) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) { throw new EOFException("truncated header"); }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) { throw new IOException("not a frozen net: " + path); }
+            int version = header.getInt();
+            if (version != VERSION) { throw new IOException("unsupported frozen net version: " + version); }
+            int n = header.getInt();
+            int e = header.getInt();
+            int symbolCount = header.getInt();
+            int start = header.getInt();
+            long symbolStart = header.getLong();
+            if (n < 1 || e < 0 || start < 0 || start >= n || symbolStart != HEADER + 4L * (n + 1) + 8L * e
+                    || symbolStart > channel.size()) {
+                throw new IOException("corrupt frozen net: " + path);
+            }
+            ByteBuffer body = channel.map(FileChannel.MapMode.READ_ONLY, HEADER, symbolStart - HEADER);
+            IntBuffer first = body.asIntBuffer().limit(n + 1).slice();
+            IntBuffer symbols = body.position(4 * (n + 1)).asIntBuffer().limit(e).slice();
+            IntBuffer targets = body.position(4 * (n + 1) + 4 * e).asIntBuffer().limit(e).slice();
+
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, symbolStart, channel.size() - symbolStart);
+            List<T> values = new ArrayList<>(symbolCount);
+            for (int i = 0; i < symbolCount; i++) {
+                values.add(table.get() == 0 ? null : codec.decode(table));
+            }
+            return new DawgNet<>(n, e, start, first, symbols, targets, values);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    // edge from state with symbol, -1 if there is none
+    private int target(int state, int symbol) {
+        int low = first.get(state) & ~TERMINAL;
+        int high = (first.get(state + 1) & ~TERMINAL) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int s = symbols.get(mid);
+            if (s < symbol) {
+                low = mid + 1;
+            } else if (s > symbol) {
+                high = mid - 1;
+            } else {
+                return targets.get(mid);
+            }
+        }
+        return -1;
+    }
+
+    //class
+    private class Cursor implements Node<T> {
+        private final Cursor parent;
+        //symbol of the edge into this node, -1 for the origin
+        private final int symbol;
+        private final int state;
+
+        private Cursor(Cursor parent, int symbol, int state) {
+            this.parent = parent;
+            this.symbol = symbol;
+            this.state = state;
+        }
+
+        @Override
+        public Node<T> parent() {
+            return parent;
+        }
+        @Override
+        public T value() {
+            return symbol < 0 ? null : values.get(symbol);
+        }
+        @Override
+        public void value(T value) {
+            throw new UnsupportedOperationException("frozen net");
+        }
+
+        @Override
+        public boolean isStart() { return parent == null; }
+        @Override
+        public boolean isEnd() { return (first.get(state) & ~TERMINAL) == (first.get(state + 1) & ~TERMINAL); }
+        @Override
+        public boolean isTerminal() { return (first.get(state) & TERMINAL) != 0; }
+        @Override
+        public void terminal(boolean terminal) {
+            throw new UnsupportedOperationException("frozen net");
+        }
+
+        @Override
+        public Collection<Node<T>> children() {
+            int from = first.get(state) & ~TERMINAL;
+            int to = first.get(state + 1) & ~TERMINAL;
+            List<Node<T>> list = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) { list.add(new Cursor(this, symbols.get(i), targets.get(i))); }
+            return list;
+        }
+        @Override
+        public Node<T> getChild(T value) {
+            Integer s = symbolOf.get(value);
+            if (s == null) { return null; }
+            int target = target(state, s);
+            return target < 0 ? null : new Cursor(this, s, target);
+        }
+        /**
+         * @throws UnsupportedOperationException if there is no such child, a frozen net can't grow
+         */
+        @Override
+        public Node<T> extend(T value) {
+            Node<T> child = getChild(value);
+            if (child == null) { throw new UnsupportedOperationException("frozen net"); }
+            return child;
+        }
+
+        // same node means same path, a state alone can be reached from several
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof DawgNet<?>.Cursor)) { return false; }
+            DawgNet<?>.Cursor a = this;
+            DawgNet<?>.Cursor b = (DawgNet<?>.Cursor) o;
+            while (a != null && b != null) {
+                if (a == b) { return true; }
+                if (a.owner() != b.owner() || a.state != b.state || a.symbol != b.symbol) { return false; }
+                a = a.parent;
+                b = b.parent;
+            }
+            return a == b;
+        }
+        @Override public int hashCode() {
+            int h = 0;
+            for (Cursor c = this; c != null; c = c.parent) { h = h * 31 + c.symbol; }
+            return h;
+        }
+        @Override public String toString() {
+            return String.valueOf(value());
+        }
+
+        private DawgNet<T> owner() { return DawgNet.this; }
+    }
+
+    private static class Frame<T> {
+        private final Node<T> node;
+        private final Iterator<Node<T>> children;
+        private int[] pairs = new int[4];
+        private int size = 0;
+
+        public Frame(Node<T> node) {
+            this.node = node;
+            this.children = node.children().iterator();
+        }
+
+        public void add(int symbol, int state) {
+            if (size + 2 > pairs.length) { pairs = Arrays.copyOf(pairs, pairs.length * 2); }
+            pairs[size++] = symbol;
+            pairs[size++] = state;
+        }
+        /**
+         * end mark, then the pairs sorted by symbol
+         */
+        public int[] signature() {
+            long[] packed = new long[size / 2];
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = ((long) pairs[2 * i] << 32) | (pairs[2 * i + 1] & 0xffffffffL);
+            }
+            Arrays.sort(packed);
+            int[] signature = new int[1 + size];
+            signature[0] = node.isTerminal() ? 1 : 0;
+            for (int i = 0; i < packed.length; i++) {
+                signature[1 + 2 * i] = (int) (packed[i] >>> 32);
+                signature[2 + 2 * i] = (int) packed[i];
+            }
+            return signature;
+        }
+    }
+
+    private static class Signature {
+        private final int[] data;
+        private final int hash;
+
+        public Signature(int[] data) {
+            this.data = data;
+            this.hash = Arrays.hashCode(data);
+        }
+
+        @Override public boolean equals(Object o) {
+            return o instanceof Signature s && s.hash == hash && Arrays.equals(s.data, data);
+        }
+        @Override public int hashCode() { return hash; }
+    }
+}
@@ -13,6 +13,7 @@ public class HashNet<T> implements Net<T> {
     private static class HashNode<T> extends HashMap<T, Node<T>> implements Node<T> {
         private final Node<T> parent;
         private T value;
+        private boolean terminal = false;
 
         public HashNode(Node<T> parent, T value) {
             this.parent = parent;
@@ -34,9 +35,13 @@ public class HashNet<T> implements Net<T> {
         }
 
         @Override
-        public boolean isStart() { return parent != null; }
+        public boolean isStart() { return parent == null; }
         @Override
         public boolean isEnd() { return isEmpty(); }
+        @Override
+        public boolean isTerminal() { return terminal; }
+        @Override
+        public void terminal(boolean terminal) { this.terminal = terminal; }
 
         @Override
         public Collection<Node<T>> children() {
@@ -46,5 +51,9 @@ public class HashNet<T> implements Net<T> {
         public Node<T> getChild(T value) {
             return get(value);
         }
+        @Override
+        public Node<T> extend(T value) {
+            return computeIfAbsent(value, v -> new HashNode<>(this, v));
+        }
     }
 }
@@ -0,0 +1,56 @@
+package main.structure.connect.net;
+
+/**
+ * net keyed by int without boxing, see PrimitiveNet
+ */
+public class IntNet extends PrimitiveNet<Integer> {
+    private final IntNode origin = new IntNode(null, 0);
+
+    @Override
+    public IntNode origin() {
+        return origin;
+    }
+
+    //typed paths, nothing boxed and nothing allocated on lookups
+    public IntNode insert(int[] path) {
+        IntNode node = origin;
+        for (int i = 0; i < path.length; i++) { node = node.extend(path[i]); }
+        node.terminal(true);
+        return node;
+    }
+    public IntNode find(int[] path) {
+        IntNode node = origin;
+        for (int i = 0; i < path.length && node != null; i++) { node = node.getChild(path[i]); }
+        return node;
+    }
+    public boolean contains(int[] path) {
+        IntNode node = find(path);
+        return node != null && node.isTerminal();
+    }
+    public IntNode longestPrefixMatch(int[] path) {
+        IntNode node = origin;
+        IntNode match = node.isTerminal() ? node : null;
+        for (int i = 0; i < path.length; i++) {
+            node = node.getChild(path[i]);
+            if (node == null) { break; }
+            if (node.isTerminal()) { match = node; }
+        }
+        return match;
+    }
+
+    public static class IntNode extends PrimitiveNode<Integer> {
+        private IntNode(IntNode parent, long key) {
+            super(parent, key);
+        }
+
+        public int key() { return (int) rawKey(); }
+        public IntNode getChild(int key) { return (IntNode) find(key); }
+        public IntNode extend(int key) { return (IntNode) add(key); }
+        @Override
+        public IntNode parent() { return (IntNode) super.parent(); }
+
+        @Override Integer box(long key) { return (int) key; }
+        @Override long unbox(Integer value) { return value; }
+        @Override IntNode create(long key) { return new IntNode(this, key); }
+    }
+}
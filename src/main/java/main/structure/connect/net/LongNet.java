@@ -0,0 +1,56 @@
+package main.structure.connect.net;
+
+/**
+ * net keyed by long without boxing, see PrimitiveNet
+ */
+public class LongNet extends PrimitiveNet<Long> {
+    private final LongNode origin = new LongNode(null, 0);
+
+    @Override
+    public LongNode origin() {
+        return origin;
+    }
+
+    //typed paths, nothing boxed and nothing allocated on lookups
+    public LongNode insert(long[] path) {
+        LongNode node = origin;
+        for (int i = 0; i < path.length; i++) { node = node.extend(path[i]); }
+        node.terminal(true);
+        return node;
+    }
+    public LongNode find(long[] path) {
+        LongNode node = origin;
+        for (int i = 0; i < path.length && node != null; i++) { node = node.getChild(path[i]); }
+        return node;
+    }
+    public boolean contains(long[] path) {
+        LongNode node = find(path);
+        return node != null && node.isTerminal();
+    }
+    public LongNode longestPrefixMatch(long[] path) {
+        LongNode node = origin;
+        LongNode match = node.isTerminal() ? node : null;
+        for (int i = 0; i < path.length; i++) {
+            node = node.getChild(path[i]);
+            if (node == null) { break; }
+            if (node.isTerminal()) { match = node; }
+        }
+        return match;
+    }
+
+    public static class LongNode extends PrimitiveNode<Long> {
+        private LongNode(LongNode parent, long key) {
+            super(parent, key);
+        }
+
+        public long key() { return rawKey(); }
+        public LongNode getChild(long key) { return (LongNode) find(key); }
+        public LongNode extend(long key) { return (LongNode) add(key); }
+        @Override
+        public LongNode parent() { return (LongNode) super.parent(); }
+
+        @Override Long box(long key) { return key; }
+        @Override long unbox(Long value) { return value; }
+        @Override LongNode create(long key) { return new LongNode(this, key); }
+    }
+}
@@ -5,10 +5,99 @@ import main.index.Indexed;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface Net<T> {
     Node<T> origin();
 
+    /**
+     * extend along the path and mark its last node as an inserted path
+     * @return last node of the path
+     */
+    default Node<T> insert(Iterable<? extends T> path) {
+        Node<T> node = origin();
+        for (T value : path) { node = node.extend(value); }
+        node.terminal(true);
+        return node;
+    }
+    default Node<T> insert(T[] path) {
+        Node<T> node = origin();
+        for (T value : path) { node = node.extend(value); }
+        node.terminal(true);
+        return node;
+    }
+
+    /**
+     * @return node at the end of the path, null if the net doesn't reach that far
+     */
+    default Node<T> find(Iterable<? extends T> path) {
+        Node<T> node = origin();
+        for (T value : path) {
+            node = node.getChild(value);
+            if (node == null) { return null; }
+        }
+        return node;
+    }
+    default Node<T> find(T[] path) {
+        Node<T> node = origin();
+        for (T value : path) {
+            node = node.getChild(value);
+            if (node == null) { return null; }
+        }
+        return node;
+    }
+
+    /**
+     * @return true if the path was inserted, a prefix of an inserted path doesn't count
+     */
+    default boolean contains(Iterable<? extends T> path) {
+        Node<T> node = find(path);
+        return node != null && node.isTerminal();
+    }
+    default boolean contains(T[] path) {
+        Node<T> node = find(path);
+        return node != null && node.isTerminal();
+    }
+
+    /**
+     * walks the path once, nothing is allocated for an array path
+     * @return last node of the longest inserted path that is a prefix of path, null if there is none
+     */
+    default Node<T> longestPrefixMatch(Iterable<? extends T> path) {
+        Node<T> node = origin();
+        Node<T> match = node.isTerminal() ? node : null;
+        for (T value : path) {
+            node = node.getChild(value);
+            if (node == null) { break; }
+            if (node.isTerminal()) { match = node; }
+        }
+        return match;
+    }
+    default Node<T> longestPrefixMatch(T[] path) {
+        Node<T> node = origin();
+        Node<T> match = node.isTerminal() ? node : null;
+        for (T value : path) {
+            node = node.getChild(value);
+            if (node == null) { break; }
+            if (node.isTerminal()) { match = node; }
+        }
+        return match;
+    }
+
+    /**
+     * every inserted path
+     */
+    default Stream<List<T>> paths() {
+        return origin().paths();
+    }
+    /**
+     * inserted paths starting with prefix, walked lazily as the stream is consumed
+     */
+    default Stream<List<T>> paths(Iterable<? extends T> prefix) {
+        Node<T> node = find(prefix);
+        return node == null ? Stream.empty() : node.paths();
+    }
+
     interface Node<T> {
         Node<T> parent();
         T value();
@@ -16,9 +105,34 @@ public interface Net<T> {
 
         boolean isStart();
         boolean isEnd();
+        /**
+         * nodes that don't keep the mark count every end as the end of an inserted path
+         * @return true if an inserted path ends here
+         */
+        default boolean isTerminal() {
+            return isEnd();
+        }
+        /**
+         * @throws UnsupportedOperationException if this node doesn't keep the mark and it would change
+         */
+        default void terminal(boolean terminal) {
+            if (terminal != isTerminal()) {
+                throw new UnsupportedOperationException("can't mark paths on " + getClass().getName());
+            }
+        }
 
         Collection<Node<T>> children();
         Node<T> getChild(T value);
+        /**
+         * nodes that can't grow only hand back existing children
+         * @return child holding the value, created if there isn't one yet
+         * @throws UnsupportedOperationException if there is no such child and this node can't add one
+         */
+        default Node<T> extend(T value) {
+            Node<T> child = getChild(value);
+            if (child == null) { throw new UnsupportedOperationException("can't add a child to " + getClass().getName()); }
+            return child;
+        }
 
         default List<T> backtrack() {
             List<T> result = new ArrayList<>();
@@ -28,5 +142,47 @@ public interface Net<T> {
             Collections.reverse(result);
             return result;
         }
+
+        /**
+         * inserted paths through this node, from the start, depth first and lazy
+         */
+        default Stream<List<T>> paths() {
+            Iterator<List<T>> iterator = new Iterator<>() {
+                // path below this node, each open node keeps its child iterator
+                private final List<T> path = backtrack();
+                private final Deque<Iterator<Node<T>>> open = new ArrayDeque<>();
+                private final int base = path.size();
+                private List<T> next = isTerminal() ? new ArrayList<>(path) : null;
+
+                {
+                    open.push(children().iterator());
+                }
+
+                @Override
+                public boolean hasNext() {
+                    while (next == null && !open.isEmpty()) {
+                        if (open.peek().hasNext()) {
+                            Node<T> child = open.peek().next();
+                            path.add(child.value());
+                            open.push(child.children().iterator());
+                            if (child.isTerminal()) { next = new ArrayList<>(path); }
+                        } else {
+                            open.pop();
+                            if (path.size() > base) { path.remove(path.size() - 1); }
+                        }
+                    }
+                    return next != null;
+                }
+                @Override
+                public List<T> next() {
+                    if (!hasNext()) { throw new NoSuchElementException(); }
+                    List<T> result = next;
+                    next = null;
+                    return result;
+                }
+            };
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                    Spliterator.NONNULL | Spliterator.DISTINCT), false);
+        }
     }
 }
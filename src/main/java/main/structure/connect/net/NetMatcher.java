@@ -0,0 +1,174 @@
+package main.structure.connect.net;
+
+import main.structure.connect.net.Net.Node;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Aho-Corasick automaton over the inserted paths of a net,
+ * finds every occurrence of every path in one pass over the input.
+ * compiled from the net as it is at construction, later changes to the net aren't seen.
+ * the automaton doesn't change after that and can be shared, the scanning state lives in a Session
+ * @param <T> value
+ */
+public class NetMatcher<T> {
+    //fields
+    //state 0 is the origin, states are numbered breadth first so a failure link always points to a lower state
+    private final List<Node<T>> nodes = new ArrayList<>();
+    private final List<Map<T, Integer>> next = new ArrayList<>();
+    private final int[] depth;
+    private final boolean[] terminal;
+    //longest proper suffix that is also a prefix in the net
+    private final int[] fail;
+    //nearest terminal state down the failure chain, -1 if there is none
+    private final int[] output;
+    //end
+
+    public NetMatcher(Net<T> net) {
+        List<Integer> depths = new ArrayList<>();
+        add(net.origin(), 0, depths);
+        for (int s = 0; s < nodes.size(); s++) {
+            Collection<Node<T>> children = nodes.get(s).children();
+            if (children.isEmpty()) { continue; }
+            Map<T, Integer> edges = new HashMap<>(children.size() * 2);
+            for (Node<T> child : children) {
+                edges.put(child.value(), nodes.size());
+                add(child, depths.get(s) + 1, depths);
+            }
+            next.set(s, edges);
+        }
+
+        int n = nodes.size();
+        depth = new int[n];
+        terminal = new boolean[n];
+        fail = new int[n];
+        output = new int[n];
+        output[0] = -1;
+        for (int s = 0; s < n; s++) {
+            depth[s] = depths.get(s);
+            // an empty path would match between every two values, it's left out
+            terminal[s] = s != 0 && nodes.get(s).isTerminal();
+        }
+        for (int s = 0; s < n; s++) {
+            for (Map.Entry<T, Integer> edge : next.get(s).entrySet()) {
+                int c = edge.getValue();
+                fail[c] = s == 0 ? 0 : step(fail[s], edge.getKey());
+                output[c] = terminal[fail[c]] ? fail[c] : output[fail[c]];
+            }
+        }
+    }
+
+    private void add(Node<T> node, int d, List<Integer> depths) {
+        nodes.add(node);
+        next.add(Collections.emptyMap());
+        depths.add(d);
+    }
+
+    //getter
+    public int stateCount() { return nodes.size(); }
+    //end
+
+    public Session session() {
+        return new Session();
+    }
+
+    /**
+     * @return every match, ordered by end position, longer first at the same end
+     */
+    public List<Match<T>> matchAll(T[] input) {
+        List<Match<T>> matches = new ArrayList<>();
+        Session session = session();
+        for (T value : input) { session.feed(value, matches::add); }
+        return matches;
+    }
+    public List<Match<T>> matchAll(Iterator<? extends T> input) {
+        List<Match<T>> matches = new ArrayList<>();
+        scan(input, matches::add);
+        return matches;
+    }
+    public void scan(Iterator<? extends T> input, Consumer<? super Match<T>> out) {
+        Session session = session();
+        while (input.hasNext()) { session.feed(input.next(), out); }
+    }
+
+    // goto with failure fallback, never leaves the automaton
+    private int step(int state, T value) {
+        while (true) {
+            Integer to = next.get(state).get(value);
+            if (to != null) { return to; }
+            if (state == 0) { return 0; }
+            state = fail[state];
+        }
+    }
+
+    //class
+    /**
+     * scanning state of one input stream, feed it one value at a time, nothing is buffered
+     */
+    public class Session {
+        private int state = 0;
+        private long position = -1;
+
+        private Session() {}
+
+        /**
+         * @return position of the last value fed, -1 before the first one
+         */
+        public long position() { return position; }
+        public void reset() {
+            state = 0;
+            position = -1;
+        }
+
+        public void feed(T value, Consumer<? super Match<T>> out) {
+            position++;
+            state = step(state, value);
+            if (terminal[state]) { out.accept(new Match<>(position, depth[state], nodes.get(state))); }
+            for (int o = output[state]; o >= 0; o = output[o]) {
+                out.accept(new Match<>(position, depth[o], nodes.get(o)));
+            }
+        }
+        /**
+         * @return matches ending at this value
+         */
+        public List<Match<T>> feed(T value) {
+            List<Match<T>> matches = new ArrayList<>(1);
+            feed(value, matches::add);
+            return matches;
+        }
+    }
+
+    public static class Match<T> {
+        private final long end;
+        private final int length;
+        private final Node<T> node;
+
+        private Match(long end, int length, Node<T> node) {
+            this.end = end;
+            this.length = length;
+            this.node = node;
+        }
+
+        //getter
+        /**
+         * @return position of the first matched value
+         */
+        public long start() { return end - length + 1; }
+        /**
+         * @return position of the last matched value
+         */
+        public long end() { return end; }
+        public int length() { return length; }
+        /**
+         * @return node of the net the matched path ends at
+         */
+        public Node<T> node() { return node; }
+        public List<T> path() { return node.backtrack(); }
+        //end
+
+        @Override public String toString() {
+            return start() + ".." + end + " " + path();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package main.structure.connect.net;
+
+import java.util.*;
+
+/**
+ * net over primitive keys, base of CharNet, IntNet and LongNet.
+ * every key is widened to a long and kept unboxed in the node, a boxed key only appears when asked for through Net.Node.
+ * few children sit in an exact size array sorted by key, past SORTED_LIMIT they move to an open addressing table
+ * and back again once they shrink, no map entry and no boxed key per edge
+ */
+public abstract class PrimitiveNet<T> implements Net<T> {
+    static final int SORTED_LIMIT = 8;
+    private static final int MIN_TABLE = 32;
+
+    @Override
+    public abstract PrimitiveNode<T> origin();
+
+    //class
+    public abstract static class PrimitiveNode<T> implements Node<T> {
+        private final PrimitiveNode<T> parent;
+        private long key;
+        //null while sorted, the table keys once hashed
+        private long[] keys = null;
+        //sorted: exactly the children, hashed: slots, null for no children
+        private PrimitiveNode<T>[] nodes = null;
+        private int count = 0;
+        private boolean terminal = false;
+
+        protected PrimitiveNode(PrimitiveNode<T> parent, long key) {
+            this.parent = parent;
+            this.key = key;
+        }
+
+        abstract T box(long key);
+        abstract long unbox(T value);
+        /**
+         * @return new node under this one, not linked yet
+         */
+        abstract PrimitiveNode<T> create(long key);
+
+        //getter
+        final long rawKey() { return key; }
+        final boolean hashed() { return keys != null; }
+        //end
+
+        @Override
+        public PrimitiveNode<T> parent() {
+            return parent;
+        }
+        /**
+         * @return the key of the edge into this node, null for the origin
+         */
+        @Override
+        public T value() {
+            return parent == null ? null : box(key);
+        }
+        /**
+         * changes the key of the edge, the node moves to the new key under the same parent
+         */
+        @Override
+        public void value(T value) {
+            if (parent == null) { throw new UnsupportedOperationException("origin has no key"); }
+            long k = unbox(Objects.requireNonNull(value, "value"));
+            if (k == key) { return; }
+            if (parent.find(k) != null) { throw new IllegalArgumentException("key already taken: " + value); }
+            parent.remove(key);
+            key = k;
+            parent.insert(this);
+        }
+
+        @Override
+        public boolean isStart() { return parent == null; }
+        @Override
+        public boolean isEnd() { return count == 0; }
+        @Override
+        public boolean isTerminal() { return terminal; }
+        @Override
+        public void terminal(boolean terminal) { this.terminal = terminal; }
+
+        public int childCount() { return count; }
+        @Override
+        public Collection<Node<T>> children() {
+            return new AbstractCollection<>() {
+                @Override public int size() { return count; }
+                @Override public Iterator<Node<T>> iterator() {
+                    PrimitiveNode<T>[] slots = nodes;
+                    return new Iterator<>() {
+                        private int i = skip(0);
+
+                        @Override public boolean hasNext() { return i < (slots == null ? 0 : slots.length); }
+                        @Override public Node<T> next() {
+                            if (!hasNext()) { throw new NoSuchElementException(); }
+                            Node<T> next = slots[i];
+                            i = skip(i + 1);
+                            return next;
+                        }
+                        private int skip(int from) {
+                            if (slots == null) { return 0; }
+                            while (from < slots.length && slots[from] == null) { from++; }
+                            return from;
+                        }
+                    };
+                }
+            };
+        }
+        @Override
+        public PrimitiveNode<T> getChild(T value) {
+            return value == null ? null : find(unbox(value));
+        }
+        @Override
+        public PrimitiveNode<T> extend(T value) {
+            return add(unbox(Objects.requireNonNull(value, "value")));
+        }
+        /**
+         * drop the child under value, it keeps its own subtree
+         * @return the dropped child, null if there was none
+         */
+        public PrimitiveNode<T> disown(T value) {
+            if (value == null) { return null; }
+            long k = unbox(value);
+            PrimitiveNode<T> child = find(k);
+            if (child != null) { remove(k); }
+            return child;
+        }
+
+        //primitive access, the typed nodes wrap these
+        final PrimitiveNode<T> find(long key) {
+            PrimitiveNode<T>[] n = nodes;
+            if (n == null) { return null; }
+            if (keys == null) {
+                int i = search(n, key);
+                return i >= 0 ? n[i] : null;
+            }
+            int mask = n.length - 1;
+            for (int i = slot(key, mask); n[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) { return n[i]; }
+            }
+            return null;
+        }
+        final PrimitiveNode<T> add(long key) {
+            PrimitiveNode<T> found = find(key);
+            if (found != null) { return found; }
+            PrimitiveNode<T> child = create(key);
+            insert(child);
+            return child;
+        }
+
+        private void insert(PrimitiveNode<T> child) {
+            if (keys == null && count < SORTED_LIMIT) {
+                // exact size, a copy per insert is cheap at this size and leaves no slack
+                int i = nodes == null ? 0 : -(search(nodes, child.key) + 1);
+                PrimitiveNode<T>[] grown = array(count + 1);
+                if (nodes != null) {
+                    System.arraycopy(nodes, 0, grown, 0, i);
+                    System.arraycopy(nodes, i, grown, i + 1, count - i);
+                }
+                grown[i] = child;
+                nodes = grown;
+                count++;
+                return;
+            }
+            if (keys == null) {
+                hash(MIN_TABLE);
+            } else if ((count + 1) * 4 > nodes.length * 3) {
+                hash(nodes.length * 2);
+            }
+            put(child);
+        }
+        private void remove(long key) {
+            if (keys == null) {
+                int i = search(nodes, key);
+                if (i < 0) { return; }
+                if (--count == 0) {
+                    nodes = null;
+                    return;
+                }
+                PrimitiveNode<T>[] shrunk = array(count);
+                System.arraycopy(nodes, 0, shrunk, 0, i);
+                System.arraycopy(nodes, i + 1, shrunk, i, count - i);
+                nodes = shrunk;
+                return;
+            }
+            int mask = nodes.length - 1;
+            int i = slot(key, mask);
+            while (nodes[i] != null && keys[i] != key) { i = (i + 1) & mask; }
+            if (nodes[i] == null) { return; }
+            nodes[i] = null;
+            count--;
+            // shift later entries of the probe run back so lookups don't stop at the hole
+            for (int j = (i + 1) & mask; nodes[j] != null; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                boolean movable = i <= j ? (home <= i || home > j) : (home <= i && home > j);
+                if (movable) {
+                    keys[i] = keys[j];
+                    nodes[i] = nodes[j];
+                    nodes[j] = null;
+                    i = j;
+                }
+            }
+            if (count <= SORTED_LIMIT / 2) { sort(); }
+        }
+        private void put(PrimitiveNode<T> child) {
+            int mask = nodes.length - 1;
+            int i = slot(child.key, mask);
+            while (nodes[i] != null) { i = (i + 1) & mask; }
+            keys[i] = child.key;
+            nodes[i] = child;
+            count++;
+        }
+        private void hash(int capacity) {
+            PrimitiveNode<T>[] old = nodes;
+            keys = new long[capacity];
+            nodes = array(capacity);
+            count = 0;
+            for (PrimitiveNode<T> n : old) {
+                if (n != null) { put(n); }
+            }
+        }
+        private void sort() {
+            PrimitiveNode<T>[] sorted = array(count);
+            int i = 0;
+            for (PrimitiveNode<T> n : nodes) {
+                if (n != null) { sorted[i++] = n; }
+            }
+            Arrays.sort(sorted, Comparator.comparingLong(n -> n.key));
+            keys = null;
+            nodes = count == 0 ? null : sorted;
+        }
+
+        private static int search(PrimitiveNode<?>[] sorted, long key) {
+            int low = 0;
+            int high = sorted.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long k = sorted[mid].key;
+                if (k < key) {
+                    low = mid + 1;
+                } else if (k > key) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+        @SuppressWarnings("unchecked")
+        private static <T> PrimitiveNode<T>[] array(int length) {
+            return (PrimitiveNode<T>[]) new PrimitiveNode<?>[length];
+        }
+
+        @Override public String toString() {
+            return value() + " -> " + count + " children";
+        }
+    }
+}
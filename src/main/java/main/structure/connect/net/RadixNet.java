@@ -0,0 +1,362 @@
+package main.structure.connect.net;
+
+import java.util.*;
+
+/**
+ * path compressed HashNet: a chain without branches is one segment holding its values in an array,
+ * a segment only splits where paths diverge or an inserted path ends inside it.
+ * nodes handed out are cursors (segment, position), they stay valid across splits
+ * because a split segment remembers where its tail went
+ */
+public class RadixNet<T> implements Net<T> {
+    private final Segment<T> root = new Segment<>(null, new Object[] {null}, 1);
+    private final Cursor origin = new Cursor(root, 0);
+
+    @Override
+    public Node<T> origin() {
+        return origin;
+    }
+
+    @Override
+    public Node<T> insert(Iterable<? extends T> path) {
+        Walk walk = new Walk(root, 0);
+        for (T value : path) { walk.grow(value); }
+        Cursor end = new Cursor(walk.segment, walk.index);
+        end.terminal(true);
+        return end;
+    }
+    @Override
+    public Node<T> insert(T[] path) {
+        Walk walk = new Walk(root, 0);
+        for (T value : path) { walk.grow(value); }
+        Cursor end = new Cursor(walk.segment, walk.index);
+        end.terminal(true);
+        return end;
+    }
+
+    @Override
+    public Node<T> find(Iterable<? extends T> path) {
+        Walk walk = walk(path);
+        return walk == null ? null : new Cursor(walk.segment, walk.index);
+    }
+    @Override
+    public Node<T> find(T[] path) {
+        Walk walk = walk(path);
+        return walk == null ? null : new Cursor(walk.segment, walk.index);
+    }
+
+    @Override
+    public boolean contains(Iterable<? extends T> path) {
+        Walk walk = walk(path);
+        return walk != null && walk.ends();
+    }
+    @Override
+    public boolean contains(T[] path) {
+        Walk walk = walk(path);
+        return walk != null && walk.ends();
+    }
+
+    @Override
+    public Node<T> longestPrefixMatch(Iterable<? extends T> path) {
+        Walk walk = new Walk(root, 0);
+        Segment<T> match = walk.ends() ? root : null;
+        int matchIndex = 0;
+        for (T value : path) {
+            if (!walk.follow(value)) { break; }
+            if (walk.ends()) {
+                match = walk.segment;
+                matchIndex = walk.index;
+            }
+        }
+        return match == null ? null : new Cursor(match, matchIndex);
+    }
+    @Override
+    public Node<T> longestPrefixMatch(T[] path) {
+        Walk walk = new Walk(root, 0);
+        Segment<T> match = walk.ends() ? root : null;
+        int matchIndex = 0;
+        for (T value : path) {
+            if (!walk.follow(value)) { break; }
+            if (walk.ends()) {
+                match = walk.segment;
+                matchIndex = walk.index;
+            }
+        }
+        return match == null ? null : new Cursor(match, matchIndex);
+    }
+
+    /**
+     * @return segments in the net, the number of maps and arrays it's made of
+     */
+    public int segmentCount() {
+        int count = 0;
+        Deque<Segment<T>> open = new ArrayDeque<>(List.of(root));
+        while (!open.isEmpty()) {
+            Segment<T> s = open.pop();
+            count++;
+            if (s.children != null) { open.addAll(s.children.values()); }
+        }
+        return count;
+    }
+
+    // null if the net doesn't reach the end of the path
+    private Walk walk(Iterable<? extends T> path) {
+        Walk walk = new Walk(root, 0);
+        for (T value : path) {
+            if (!walk.follow(value)) { return null; }
+        }
+        return walk;
+    }
+    private Walk walk(T[] path) {
+        Walk walk = new Walk(root, 0);
+        for (T value : path) {
+            if (!walk.follow(value)) { return null; }
+        }
+        return walk;
+    }
+
+    //class
+    private static class Segment<T> {
+        private Segment<T> parent;
+        private Object[] values;
+        private int length;
+        //keyed by the first value of each child segment, null while there are none
+        private Map<T, Segment<T>> children = null;
+        //an inserted path ends at the last value
+        private boolean terminal = false;
+        //took the values past length when this was last split
+        private Segment<T> split = null;
+        //segment the values were first added to and where this one starts in it, splits don't change a position there
+        private final Segment<T> home;
+        private final int offset;
+
+        public Segment(Segment<T> parent, Object[] values, int length) {
+            this.parent = parent;
+            this.values = values;
+            this.length = length;
+            this.home = this;
+            this.offset = 0;
+        }
+        private Segment(Segment<T> parent, Object[] values, int length, Segment<T> home, int offset) {
+            this.parent = parent;
+            this.values = values;
+            this.length = length;
+            this.home = home;
+            this.offset = offset;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T value(int i) { return (T) values[i]; }
+        public boolean hasChildren() { return children != null && !children.isEmpty(); }
+
+        /**
+         * keep [0, at] here, the rest moves to a new child segment with the children and the end mark
+         */
+        public void splitAfter(int at) {
+            if (at < 0 || at >= length - 1) {
+                throw new IllegalArgumentException("no values after %d in a segment of %d".formatted(at, length));
+            }
+            Segment<T> tail = new Segment<>(this, Arrays.copyOfRange(values, at + 1, length), length - at - 1,
+                    home, offset + at + 1);
+            tail.children = children;
+            tail.terminal = terminal;
+            tail.split = split;
+            if (tail.children != null) { tail.children.values().forEach(c -> c.parent = tail); }
+            Arrays.fill(values, at + 1, length, null);
+            length = at + 1;
+            children = new HashMap<>(2);
+            children.put(tail.value(0), tail);
+            terminal = false;
+            split = tail;
+        }
+        public Segment<T> branch(T value) {
+            Segment<T> child = new Segment<>(this, new Object[] {value}, 1);
+            if (children == null) { children = new HashMap<>(2); }
+            children.put(value, child);
+            return child;
+        }
+        public void append(T value) {
+            if (length == values.length) { values = Arrays.copyOf(values, length * 2); }
+            values[length++] = value;
+        }
+    }
+
+    /**
+     * position stepped along a path in place, the whole path costs one of these and no nodes
+     */
+    private class Walk {
+        protected Segment<T> segment;
+        protected int index;
+
+        private Walk(Segment<T> segment, int index) {
+            this.segment = segment;
+            this.index = index;
+        }
+
+        /**
+         * @return false and stay if there is no child holding the value
+         */
+        protected boolean follow(T value) {
+            Segment<T> s = segment;
+            if (index < s.length - 1) {
+                if (!Objects.equals(s.value(index + 1), value)) { return false; }
+                index++;
+                return true;
+            }
+            Segment<T> child = s.children == null ? null : s.children.get(value);
+            if (child == null) { return false; }
+            segment = child;
+            index = 0;
+            return true;
+        }
+        // step to the child holding the value, made if there isn't one
+        protected void grow(T value) {
+            Segment<T> s = segment;
+            if (index < s.length - 1) {
+                if (Objects.equals(s.value(index + 1), value)) {
+                    index++;
+                    return;
+                }
+                s.splitAfter(index);
+            } else {
+                Segment<T> child = s.children == null ? null : s.children.get(value);
+                if (child != null) {
+                    segment = child;
+                    index = 0;
+                    return;
+                }
+                if (s.parent != null && !s.hasChildren() && !s.terminal) {
+                    // still a chain, grow the segment instead of adding one
+                    s.append(value);
+                    index = s.length - 1;
+                    return;
+                }
+            }
+            segment = s.branch(value);
+            index = 0;
+        }
+        protected boolean ends() {
+            return index == segment.length - 1 && segment.terminal;
+        }
+    }
+
+    private class Cursor extends Walk implements Node<T> {
+        private Cursor(Segment<T> segment, int index) {
+            super(segment, index);
+        }
+
+        // follow splits that happened since this cursor was made
+        private Segment<T> at() {
+            while (index >= segment.length) {
+                index -= segment.length;
+                segment = segment.split;
+            }
+            return segment;
+        }
+        private boolean isLast() {
+            Segment<T> s = at();
+            return index == s.length - 1;
+        }
+
+        @Override
+        public Node<T> parent() {
+            Segment<T> s = at();
+            if (index > 0) { return new Cursor(s, index - 1); }
+            return s.parent == null ? null : new Cursor(s.parent, s.parent.length - 1);
+        }
+
+        @Override
+        public T value() {
+            return at().value(index);
+        }
+        @Override
+        public void value(T value) {
+            Segment<T> s = at();
+            if (s.parent == null) { throw new UnsupportedOperationException("origin has no value"); }
+            T old = s.value(index);
+            if (Objects.equals(old, value)) { return; }
+            if (index == 0) {
+                // the parent finds this segment by its first value
+                if (s.parent.children.containsKey(value)) {
+                    throw new IllegalArgumentException("sibling already holds " + value);
+                }
+                s.parent.children.remove(old);
+                s.parent.children.put(value, s);
+            }
+            // further in, the previous value has no other child to clash with
+            s.values[index] = value;
+        }
+
+        @Override
+        public boolean isStart() { return at().parent == null; }
+        @Override
+        public boolean isEnd() { return isLast() && !at().hasChildren(); }
+        @Override
+        public boolean isTerminal() { return isLast() && at().terminal; }
+        @Override
+        public void terminal(boolean terminal) {
+            Segment<T> s = at();
+            if (index < s.length - 1) {
+                if (!terminal) { return; }
+                s.splitAfter(index);
+            }
+            s.terminal = terminal;
+        }
+
+        @Override
+        public Collection<Node<T>> children() {
+            Segment<T> s = at();
+            if (index < s.length - 1) { return List.of(new Cursor(s, index + 1)); }
+            if (!s.hasChildren()) { return Collections.emptyList(); }
+            List<Node<T>> list = new ArrayList<>(s.children.size());
+            for (Segment<T> c : s.children.values()) { list.add(new Cursor(c, 0)); }
+            return list;
+        }
+        @Override
+        public Node<T> getChild(T value) {
+            Cursor child = new Cursor(at(), index);
+            return child.follow(value) ? child : null;
+        }
+        @Override
+        public Node<T> extend(T value) {
+            Cursor child = new Cursor(at(), index);
+            child.grow(value);
+            return child;
+        }
+
+        @Override
+        public List<T> backtrack() {
+            Deque<Segment<T>> line = new ArrayDeque<>();
+            line.push(at());
+            int size = index + 1;
+            for (Segment<T> s = segment.parent; s != null; s = s.parent) {
+                line.push(s);
+                size += s.length;
+            }
+            // the origin's placeholder value isn't part of the path
+            line.pop();
+            List<T> result = new ArrayList<>(size - 1);
+            while (line.size() > 1) {
+                Segment<T> s = line.pop();
+                for (int i = 0; i < s.length; i++) { result.add(s.value(i)); }
+            }
+            if (!line.isEmpty()) {
+                for (int i = 0; i <= index; i++) { result.add(segment.value(i)); }
+            }
+            return result;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof RadixNet<?>.Cursor c)) { return false; }
+            return c.at() == at() && c.index == index;
+        }
+        // by the position in the home segment, a split moves the cursor but not that
+        @Override public int hashCode() {
+            Segment<T> s = at();
+            return System.identityHashCode(s.home) * 31 + s.offset + index;
+        }
+        @Override public String toString() {
+            return String.valueOf(value());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package main.structure.tree;
+
+import java.util.*;
+
+/**
+ * snapshot of a subtree for ancestor queries,
+ * euler tour intervals answer isAncestorOf in O(1),
+ * binary lifting answers ancestor and lowestCommonAncestor in O(log n).
+ * changes made to the tree after building aren't seen, build a new index instead
+ */
+public class AncestryIndex<T> {
+    //fields
+    private final Map<Connected<T>, Integer> ids = new IdentityHashMap<>();
+    private final List<Connected<T>> nodes = new ArrayList<>();
+    private final int[] enter;
+    private final int[] exit;
+    private final int[] depth;
+    //up[j][i] is the 2^j-th ancestor of i, -1 past the root
+    private final int[][] up;
+    //end
+
+    public AncestryIndex(Connected<T> root) {
+        int n = root.subtreeSize();
+        enter = new int[n];
+        exit = new int[n];
+        depth = new int[n];
+        int[] parent = new int[n];
+
+        // iterative dfs, a node's interval closes once all its children are done
+        Deque<Integer> stack = new ArrayDeque<>();
+        Deque<Iterator<Connected<T>>> children = new ArrayDeque<>();
+        int clock = 0;
+        add(root, -1, parent);
+        stack.push(0);
+        children.push(root.child().iterator());
+        enter[0] = clock++;
+        while (!stack.isEmpty()) {
+            if (children.peek().hasNext()) {
+                Connected<T> c = children.peek().next();
+                int id = add(c, stack.peek(), parent);
+                depth[id] = depth[stack.peek()] + 1;
+                enter[id] = clock++;
+                stack.push(id);
+                children.push(c.child().iterator());
+            } else {
+                exit[stack.pop()] = clock++;
+                children.pop();
+            }
+        }
+
+        int levels = 1;
+        while ((1 << levels) < n) { levels++; }
+        up = new int[levels][];
+        up[0] = parent;
+        for (int j = 1; j < levels; j++) {
+            int[] previous = up[j-1];
+            int[] level = new int[n];
+            for (int i = 0; i < n; i++) {
+                level[i] = previous[i] < 0 ? -1 : previous[previous[i]];
+            }
+            up[j] = level;
+        }
+    }
+
+    private int add(Connected<T> node, int parent, int[] parents) {
+        int id = nodes.size();
+        if (id == enter.length) {
+            throw new ConcurrentModificationException("tree changed while indexing");
+        }
+        nodes.add(node);
+        ids.put(node, id);
+        parents[id] = parent;
+        return id;
+    }
+
+    //getter
+    public int size() { return nodes.size(); }
+    public boolean contains(Connected<T> node) { return ids.containsKey(node); }
+    /**
+     * @return generation counted from the indexed root
+     */
+    public int getGeneration(Connected<T> node) { return depth[id(node)]; }
+    //end
+
+    /**
+     * @return true if descendant is below ancestor, a node isn't its own ancestor
+     */
+    public boolean isAncestorOf(Connected<T> ancestor, Connected<T> descendant) {
+        int a = id(ancestor);
+        int d = id(descendant);
+        return a != d && enter[a] <= enter[d] && exit[d] <= exit[a];
+    }
+
+    /**
+     * @param generation how many generations up, 0 is the node itself
+     * @return the ancestor, empty past the indexed root
+     */
+    public Optional<Connected<T>> ancestor(Connected<T> node, int generation) {
+        int i = id(node);
+        if (generation < 0) { throw new IllegalArgumentException("generation: " + generation); }
+        if (generation > depth[i]) { return Optional.empty(); }
+        return Optional.of(nodes.get(lift(i, generation)));
+    }
+
+    public Connected<T> lowestCommonAncestor(Connected<T> a, Connected<T> b) {
+        int x = id(a);
+        int y = id(b);
+        if (depth[x] < depth[y]) {
+            int t = x;
+            x = y;
+            y = t;
+        }
+        x = lift(x, depth[x] - depth[y]);
+        if (x == y) { return nodes.get(x); }
+        for (int j = up.length - 1; j >= 0; j--) {
+            if (up[j][x] != up[j][y]) {
+                x = up[j][x];
+                y = up[j][y];
+            }
+        }
+        return nodes.get(up[0][x]);
+    }
+
+    private int lift(int i, int generation) {
+        for (int j = 0; generation > 0; j++, generation >>= 1) {
+            if ((generation & 1) != 0) { i = up[j][i]; }
+        }
+        return i;
+    }
+    private int id(Connected<T> node) {
+        Integer id = ids.get(node);
+        if (id == null) { throw new IllegalArgumentException("node isn't in this index: " + node); }
+        return id;
+    }
+}
@@ -0,0 +1,320 @@
+package main.structure.tree;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * tree stored as struct of arrays, a node is just an index:
+ * parent, first child, last child and next sibling are int arrays, values one Object array.
+ * around 20 bytes per node instead of a Connected, a Tree map entry and a HashSet per parent,
+ * and siblings sit next to each other when built breadth first.
+ * remove puts a subtree's slots on a free list that adopt takes from first, disown only detaches
+ */
+@SuppressWarnings("unused")
+public class CompactTree<T> {
+    public static final int NONE = -1;
+    private static final int ROOT = 0;
+    //parent of a slot on the free list
+    private static final int FREE = -2;
+
+    //fields
+    private int[] parent;
+    private int[] firstChild;
+    private int[] lastChild;
+    private int[] nextSibling;
+    private Object[] values;
+    //slots in use
+    private int size = 0;
+    //slots ever handed out, free ones included
+    private int used = 0;
+    //first free slot, the rest are chained through nextSibling
+    private int free = NONE;
+    //end
+
+    public CompactTree(T rootValue) {
+        this(rootValue, 16);
+    }
+    public CompactTree(T rootValue, int capacity) {
+        capacity = Math.max(1, capacity);
+        parent = new int[capacity];
+        firstChild = new int[capacity];
+        lastChild = new int[capacity];
+        nextSibling = new int[capacity];
+        values = new Object[capacity];
+        add(NONE, rootValue);
+    }
+
+    //static
+    /**
+     * copy a Connected hierarchy, breadth first so siblings are stored together
+     */
+    public static <T> CompactTree<T> of(Connected<T> root) {
+        CompactTree<T> tree = new CompactTree<>(root.value());
+        Queue<Connected<T>> open = new ArrayDeque<>();
+        Queue<Integer> index = new ArrayDeque<>();
+        open.add(root);
+        index.add(ROOT);
+        while (!open.isEmpty()) {
+            Connected<T> c = open.remove();
+            int i = index.remove();
+            for (Connected<T> child : c.child()) {
+                open.add(child);
+                index.add(tree.adopt(i, child.value()));
+            }
+        }
+        return tree;
+    }
+
+    //getter
+    public int root() { return ROOT; }
+    public int size() { return size; }
+    @SuppressWarnings("unchecked")
+    public T value(int node) { return (T) values[check(node)]; }
+    public int parent(int node) { return parent[check(node)]; }
+    public int firstChild(int node) { return firstChild[check(node)]; }
+    public int nextSibling(int node) { return nextSibling[check(node)]; }
+    //setter
+    public void value(int node, T value) { values[check(node)] = value; }
+    //end
+
+    public Node node(int node) {
+        return new Node(check(node));
+    }
+
+    public boolean isOrphan(int node) {
+        return parent[check(node)] == NONE;
+    }
+    public boolean isChildless(int node) {
+        return firstChild[check(node)] == NONE;
+    }
+    public int childCount(int node) {
+        int count = 0;
+        for (int c = firstChild[check(node)]; c != NONE; c = nextSibling[c]) { count++; }
+        return count;
+    }
+    public int getGeneration(int node) {
+        int generation = 0;
+        for (int p = parent[check(node)]; p != NONE; p = parent[p]) { generation++; }
+        return generation;
+    }
+
+    //set
+    /**
+     * @return index of the new child, appended after its siblings
+     */
+    public int adopt(int parent, T value) {
+        return add(check(parent), value);
+    }
+    /**
+     * detach a node with its subtree, the subtree stays readable but is no longer reachable from the root.
+     * its slots stay taken, remove gives them back
+     */
+    public void disown(int child) {
+        int p = parent[check(child)];
+        if (p == NONE) { return; }
+        int previous = NONE;
+        for (int c = firstChild[p]; c != child; c = nextSibling[c]) { previous = c; }
+        if (previous == NONE) {
+            firstChild[p] = nextSibling[child];
+        } else {
+            nextSibling[previous] = nextSibling[child];
+        }
+        if (lastChild[p] == child) { lastChild[p] = previous; }
+        nextSibling[child] = NONE;
+        parent[child] = NONE;
+    }
+    /**
+     * detach a node and free its whole subtree, later adopts reuse the slots.
+     * the removed indexes are invalid from then on
+     */
+    public void remove(int node) {
+        if (check(node) == ROOT) { throw new IllegalArgumentException("can't remove the root"); }
+        disown(node);
+        int[] open = new int[16];
+        int top = 0;
+        open[top++] = node;
+        while (top > 0) {
+            int c = open[--top];
+            // children are pushed before c is freed, freeing overwrites the links
+            for (int child = firstChild[c]; child != NONE; child = nextSibling[child]) {
+                if (top == open.length) { open = Arrays.copyOf(open, top * 2); }
+                open[top++] = child;
+            }
+            parent[c] = FREE;
+            firstChild[c] = NONE;
+            lastChild[c] = NONE;
+            values[c] = null;
+            nextSibling[c] = free;
+            free = c;
+            size--;
+        }
+    }
+    /**
+     * shrink the arrays to the highest slot in use, free slots below it are kept
+     */
+    public void trimToSize() {
+        int top = used;
+        while (top > 0 && parent[top - 1] == FREE) { top--; }
+        if (top < used) {
+            // drop the cut slots from the free list
+            int previous = NONE;
+            for (int c = free; c != NONE; c = nextSibling[c]) {
+                if (c < top) {
+                    previous = c;
+                } else if (previous == NONE) {
+                    free = nextSibling[c];
+                } else {
+                    nextSibling[previous] = nextSibling[c];
+                }
+            }
+            used = top;
+        }
+        resize(used);
+    }
+
+    //interaction
+    /**
+     * Self inclusive, children before parents
+     * @param node subtree root
+     * @param task task
+     */
+    public void childLabor(int node, IntConsumer task) {
+        check(node);
+        int c = node;
+        // descend to the deepest first child, then walk siblings and climb, no stack needed
+        while (firstChild[c] != NONE) { c = firstChild[c]; }
+        while (true) {
+            task.accept(c);
+            if (c == node) { return; }
+            if (nextSibling[c] != NONE) {
+                c = nextSibling[c];
+                while (firstChild[c] != NONE) { c = firstChild[c]; }
+            } else {
+                c = parent[c];
+            }
+        }
+    }
+    /**
+     * Self inclusive, parents before children
+     * @param node subtree root
+     * @param task task
+     */
+    public void preOrder(int node, IntConsumer task) {
+        check(node);
+        int c = node;
+        while (true) {
+            task.accept(c);
+            if (firstChild[c] != NONE) {
+                c = firstChild[c];
+                continue;
+            }
+            while (c != node && nextSibling[c] == NONE) { c = parent[c]; }
+            if (c == node) { return; }
+            c = nextSibling[c];
+        }
+    }
+
+    public Connected<T> toConnected() {
+        return toConnected(ROOT);
+    }
+    public Connected<T> toConnected(int node) {
+        Connected<T> root = new Connected<>(value(node));
+        Deque<Connected<T>> open = new ArrayDeque<>();
+        Deque<Integer> index = new ArrayDeque<>();
+        open.add(root);
+        index.add(node);
+        while (!open.isEmpty()) {
+            Connected<T> c = open.remove();
+            for (int i = firstChild[index.remove()]; i != NONE; i = nextSibling[i]) {
+                Connected<T> child = new Connected<>(value(i));
+                c.adopt(child);
+                open.add(child);
+                index.add(i);
+            }
+        }
+        return root;
+    }
+
+    private int add(int p, T value) {
+        int i = free;
+        if (i != NONE) {
+            free = nextSibling[i];
+        } else {
+            if (used == values.length) {
+                resize(used + (used >> 1) + 1);
+            }
+            i = used++;
+        }
+        size++;
+        parent[i] = p;
+        firstChild[i] = NONE;
+        lastChild[i] = NONE;
+        nextSibling[i] = NONE;
+        values[i] = value;
+        if (p != NONE) {
+            if (lastChild[p] == NONE) {
+                firstChild[p] = i;
+            } else {
+                nextSibling[lastChild[p]] = i;
+            }
+            lastChild[p] = i;
+        }
+        return i;
+    }
+    private void resize(int capacity) {
+        parent = Arrays.copyOf(parent, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        lastChild = Arrays.copyOf(lastChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+    private int check(int node) {
+        if (node < 0 || node >= used) {
+            throw new IndexOutOfBoundsException("node %d of %d".formatted(node, used));
+        }
+        if (parent[node] == FREE) {
+            throw new IndexOutOfBoundsException("node %d was removed".formatted(node));
+        }
+        return node;
+    }
+
+    //class
+    /**
+     * handle over one index, the Connected-like view of a node
+     */
+    public class Node {
+        private final int index;
+
+        private Node(int index) {
+            this.index = index;
+        }
+
+        public int index() { return index; }
+        public T value() { return CompactTree.this.value(index); }
+        public void value(T value) { CompactTree.this.value(index, value); }
+
+        public Optional<Node> ascent() {
+            int p = parent[index];
+            return p == NONE ? Optional.empty() : Optional.of(new Node(p));
+        }
+        public List<Node> child() {
+            List<Node> list = new ArrayList<>();
+            for (int c = firstChild[index]; c != NONE; c = nextSibling[c]) {
+                list.add(new Node(c));
+            }
+            return list;
+        }
+        public boolean isOrphan() { return CompactTree.this.isOrphan(index); }
+        public boolean isChildless() { return CompactTree.this.isChildless(index); }
+        public int getGeneration() { return CompactTree.this.getGeneration(index); }
+        public Node adopt(T value) { return new Node(CompactTree.this.adopt(index, value)); }
+
+        @Override public boolean equals(Object o) {
+            return o instanceof CompactTree<?>.Node n && n.tree() == CompactTree.this && n.index == index;
+        }
+        @Override public int hashCode() { return index; }
+        @Override public String toString() { return index + " -> " + value(); }
+
+        private CompactTree<T> tree() { return CompactTree.this; }
+    }
+}
@@ -0,0 +1,499 @@
+package main.structure.tree;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Connected for many readers and a few writers.
+ * reads never lock: parent is volatile, value and children sit in an immutable state replaced on every change.
+ * a write only locks the nodes it touches (new parent, child, old parent), moving a subtree that has
+ * children also takes its tree's graft lock so two moves can't close a cycle between them.
+ * every write gets a version from its tree's clock and leaves the state it replaced behind while a snapshot
+ * of that tree may still need it, so snapshot() reads the subtree as of one version and never holds anything
+ * a writer waits on. at most it waits out a write already under way on a node it reaches.
+ * a tree is every node ever linked to another one, so clock, snapshots and graft lock of two trees
+ * are only shared once a node moves between them
+ */
+@SuppressWarnings("unused")
+public class ConcurrentConnected<T> {
+    public ConcurrentConnected(T value) {
+        this(value, new Group());
+    }
+    public ConcurrentConnected() {
+        this(null);
+    }
+    private ConcurrentConnected(T value, Group group) {
+        this.state = State.initial(value);
+        this.group = group;
+    }
+
+    //fields
+    private volatile ConcurrentConnected<T> parent = null;
+    //newest state on top of the older ones a running snapshot may still read
+    private volatile State<T> state;
+    //set by a writer before it takes its version and cleared once its states are in
+    private volatile boolean writing = false;
+    //tree this node is in, may point to a group since merged into another one
+    private volatile Group group;
+    //states below the newest one, and how many before the tail is trimmed again, both under the monitor
+    private int kept = 0;
+    private int trimAt = TRIM;
+    //lock order
+    private final long id = IDS.getAndIncrement();
+    //end
+
+    private static final ConcurrentConnected<?>[] NONE = new ConcurrentConnected<?>[0];
+    private static final AtomicLong IDS = new AtomicLong();
+    //history a node keeps before its first trim
+    private static final int TRIM = 8;
+
+    //getter and setter
+    public T value() { return state.value; }
+    public void value(T value) {
+        locked(new ConcurrentConnected<?>[] {this}, () -> {
+            write(new ConcurrentConnected<?>[] {this}, (version, floor) ->
+                    install(value, state.children, version, floor));
+            return true;
+        });
+    }
+    //end
+
+    //iteration
+    public Optional<ConcurrentConnected<T>> ascent() {
+        return Optional.ofNullable(parent);
+    }
+    /**
+     * @return children at the moment of the call, later changes aren't seen
+     */
+    public List<ConcurrentConnected<T>> child() {
+        return Collections.unmodifiableList(Arrays.asList(state.children));
+    }
+    //end
+
+    //get
+    @Override public String toString() {
+        ConcurrentConnected<T> p = parent;
+        State<T> s = state;
+        StringJoiner joiner = new StringJoiner(", ", " -> [", "]");
+        for (ConcurrentConnected<T> c : s.children) { joiner.add(Objects.toString(c.value())); }
+        return (p == null ? "null" : p.value()) + " -> " + s.value + joiner;
+    }
+
+    public boolean isOrphan() {
+        return parent == null;
+    }
+    public boolean isChildless() {
+        return state.children.length == 0;
+    }
+    public int getGeneration() {
+        int generation = 0;
+        for (ConcurrentConnected<T> p = parent; p != null; p = p.parent) { generation++; }
+        return generation;
+    }
+    public boolean isAncestorOf(ConcurrentConnected<T> other) {
+        for (ConcurrentConnected<T> p = other.parent; p != null; p = p.parent) {
+            if (p == this) { return true; }
+        }
+        return false;
+    }
+
+    //set
+    public ConcurrentConnected<T> adopt(T value) {
+        return adopt(new ConcurrentConnected<>(value, group()));
+    }
+    /**
+     * a child that already has a parent is moved
+     * @param child child
+     * @return this
+     */
+    public ConcurrentConnected<T> adopt(ConcurrentConnected<T> child) {
+        if (child == this) { throw new IllegalArgumentException("can't adopt itself"); }
+        while (true) {
+            ConcurrentConnected<T> old = child.parent;
+            if (old == this) { return this; }
+            // a childless node can't be anyone's ancestor, moving it needs no cycle check
+            boolean graft = !child.isChildless();
+            Group mine = group();
+            Group theirs = child.group();
+            // joining two trees also waits out moves in either of them
+            Group[] grafts = mine != theirs ? Group.ordered(mine, theirs)
+                    : graft ? new Group[] {mine} : new Group[0];
+            for (Group g : grafts) { g.graft.lock(); }
+            try {
+                if (Arrays.stream(grafts).anyMatch(Group::merged)) { continue; }
+                if (mine != theirs) { Group.merge(mine, theirs); }
+                ConcurrentConnected<?>[] touched = {this, child, old};
+                boolean done = locked(touched, () -> {
+                    if (child.parent != old || (!graft && !child.isChildless())) { return false; }
+                    if (graft && child.isAncestorOf(this)) {
+                        throw new IllegalArgumentException("can't adopt an ancestor");
+                    }
+                    write(touched, (version, floor) -> {
+                        if (old != null) {
+                            old.install(old.state.value, without(old.state.children, child), version, floor);
+                        }
+                        child.parent = this;
+                        install(state.value, with(state.children, child), version, floor);
+                    });
+                    return true;
+                });
+                if (done) { return this; }
+            } finally {
+                for (int i = grafts.length - 1; i >= 0; i--) { grafts[i].graft.unlock(); }
+            }
+        }
+    }
+    public ConcurrentConnected<T> adopt(Collection<? extends ConcurrentConnected<T>> child) {
+        child.forEach(this::adopt);
+        return this;
+    }
+    /**
+     * the child keeps its own subtree, nothing happens if it isn't a child of this
+     * @param child child
+     * @return this
+     */
+    public ConcurrentConnected<T> disown(ConcurrentConnected<T> child) {
+        ConcurrentConnected<?>[] touched = {this, child};
+        locked(touched, () -> {
+            if (child.parent != this) { return false; }
+            write(touched, (version, floor) -> {
+                install(state.value, without(state.children, child), version, floor);
+                child.parent = null;
+            });
+            return true;
+        });
+        return this;
+    }
+
+    //interaction
+    /**
+     * consistent copy of this subtree as of the last write finished before the call,
+     * writers are never blocked by it, on this tree or any other
+     * @return nodes and their values at one moment, parents before children
+     */
+    public Snapshot<T> snapshot() {
+        try (Reader reader = read()) {
+            return new Snapshot<>(this, reader.version);
+        }
+    }
+    /**
+     * writers of this tree keep what a read as of the returned version needs until it's closed
+     */
+    Reader read() {
+        Reader reader = new Reader();
+        while (true) {
+            Group g = group();
+            long stamp = g.lock.readLock();
+            try {
+                if (g.merged()) { continue; }
+                // registered before picking the version, a writer that doesn't see it yet writes after that version
+                g.readers.add(reader);
+                reader.group = g;
+                reader.version = g.clock.get();
+                return reader;
+            } finally {
+                g.lock.unlockRead(stamp);
+            }
+        }
+    }
+    /**
+     * @return states kept below the newest one for running snapshots
+     */
+    int history() {
+        synchronized (this) {
+            return kept;
+        }
+    }
+
+    // caller holds the monitor of this node
+    private void install(T value, ConcurrentConnected<T>[] children, long version, long floor) {
+        if (floor == Long.MAX_VALUE) {
+            state = new State<>(value, children, version, null);
+            kept = 0;
+            return;
+        }
+        state = new State<>(value, children, version, state);
+        // the tail is only cut once it doubled since the last cut, so the walks cost O(1) per write
+        if (++kept >= trimAt && floor != Long.MIN_VALUE) {
+            kept = state.previous.trim(floor);
+            trimAt = Math.max(TRIM, 2 * kept);
+        }
+    }
+    private Group group() {
+        Group g = group;
+        if (!g.merged()) { return g; }
+        g = g.find();
+        // racing callers only ever write a group this node is in
+        group = g;
+        return g;
+    }
+    /**
+     * @return state as of version, waits if a write is putting its states in right now
+     */
+    private State<T> stateAt(long version) {
+        while (writing) { Thread.onSpinWait(); }
+        State<T> s = state;
+        while (s.version > version) { s = s.previous; }
+        return s;
+    }
+
+    //static
+    // every node in touched is locked by the caller and they're all in one tree
+    private static void write(ConcurrentConnected<?>[] touched, Change change) {
+        for (ConcurrentConnected<?> n : touched) {
+            if (n != null) { n.writing = true; }
+        }
+        try {
+            while (true) {
+                Group g = touched[0].group();
+                long stamp = g.lock.readLock();
+                try {
+                    if (g.merged()) { continue; }
+                    change.apply(g.clock.incrementAndGet(), g.floor());
+                    return;
+                } finally {
+                    g.lock.unlockRead(stamp);
+                }
+            }
+        } finally {
+            for (ConcurrentConnected<?> n : touched) {
+                if (n != null) { n.writing = false; }
+            }
+        }
+    }
+    // nested monitors in id order, nulls skipped
+    private static boolean locked(ConcurrentConnected<?>[] nodes, BooleanSupplier body) {
+        ConcurrentConnected<?>[] order = Arrays.stream(nodes)
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted(Comparator.comparingLong(n -> n.id))
+                .toArray(ConcurrentConnected<?>[]::new);
+        return locked(order, 0, body);
+    }
+    private static boolean locked(ConcurrentConnected<?>[] order, int i, BooleanSupplier body) {
+        if (i == order.length) { return body.getAsBoolean(); }
+        synchronized (order[i]) {
+            return locked(order, i + 1, body);
+        }
+    }
+    private static <T> ConcurrentConnected<T>[] with(ConcurrentConnected<T>[] array, ConcurrentConnected<T> node) {
+        ConcurrentConnected<T>[] copy = Arrays.copyOf(array, array.length + 1);
+        copy[array.length] = node;
+        return copy;
+    }
+    private static <T> ConcurrentConnected<T>[] without(ConcurrentConnected<T>[] array, ConcurrentConnected<T> node) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == node) {
+                ConcurrentConnected<T>[] copy = Arrays.copyOf(array, array.length - 1);
+                System.arraycopy(array, i + 1, copy, i, array.length - i - 1);
+                return copy;
+            }
+        }
+        return array;
+    }
+
+    //class
+    private interface Change {
+        void apply(long version, long floor);
+    }
+
+    static final class Reader implements AutoCloseable {
+        //-1 until the snapshot picked its version
+        private volatile long version = -1;
+        //group it registered in, merges copy it on into the group they join
+        private Group group;
+
+        @Override
+        public void close() {
+            while (true) {
+                Group root = group.find();
+                long stamp = root.lock.readLock();
+                try {
+                    if (root.merged()) { continue; }
+                    for (Group g = group; g != null; g = g.into) { g.readers.remove(this); }
+                    return;
+                } finally {
+                    root.lock.unlockRead(stamp);
+                }
+            }
+        }
+    }
+
+    /**
+     * union-find over the nodes of one tree, joined by rank and never split, so a node that left a tree
+     * still honours that tree's snapshots. writers and readers hold the lock shared, only a join takes it
+     */
+    private static final class Group {
+        private static final AtomicLong IDS = new AtomicLong();
+
+        //write versions, a snapshot reads every node as of one of them
+        private final AtomicLong clock = new AtomicLong();
+        //snapshots being taken, writers keep the states these can still ask for
+        private final Set<Reader> readers = ConcurrentHashMap.newKeySet();
+        //only moves of subtrees that have children and joins take it, readers never do
+        private final ReentrantLock graft = new ReentrantLock();
+        private final StampedLock lock = new StampedLock();
+        private final long id = IDS.getAndIncrement();
+        //set once when this group is joined into another one
+        private volatile Group into = null;
+        private int rank = 0;
+
+        public boolean merged() {
+            return into != null;
+        }
+        public Group find() {
+            Group g = this;
+            while (g.into != null) { g = g.into; }
+            return g;
+        }
+        /**
+         * @return oldest version a running snapshot may read, MIN_VALUE while one hasn't picked its version,
+         * MAX_VALUE when none is running
+         */
+        public long floor() {
+            long floor = Long.MAX_VALUE;
+            for (Reader reader : readers) {
+                long version = reader.version;
+                if (version < 0) { return Long.MIN_VALUE; }
+                floor = Math.min(floor, version);
+            }
+            return floor;
+        }
+
+        public static Group[] ordered(Group a, Group b) {
+            return a.id < b.id ? new Group[] {a, b} : new Group[] {b, a};
+        }
+        /**
+         * both are unmerged and their graft locks are held by the caller
+         */
+        public static void merge(Group a, Group b) {
+            Group[] order = ordered(a, b);
+            long first = order[0].lock.writeLock();
+            long second = order[1].lock.writeLock();
+            try {
+                Group root = a.rank >= b.rank ? a : b;
+                Group other = root == a ? b : a;
+                if (root.rank == other.rank) { root.rank++; }
+                // a version handed out by either clock stays behind every later one
+                root.clock.set(Math.max(root.clock.get(), other.clock.get()));
+                root.readers.addAll(other.readers);
+                other.into = root;
+            } finally {
+                order[1].lock.unlockWrite(second);
+                order[0].lock.unlockWrite(first);
+            }
+        }
+    }
+
+    /**
+     * value and children of a node from one version on, never changed once made
+     */
+    private static final class State<T> {
+        private final T value;
+        private final ConcurrentConnected<T>[] children;
+        private final long version;
+        //what the node held before version, null once no snapshot can ask for it.
+        //only ever cut, a reader that still sees the old link doesn't walk that far
+        private State<T> previous;
+
+        private State(T value, ConcurrentConnected<T>[] children, long version, State<T> previous) {
+            this.value = value;
+            this.children = children;
+            this.version = version;
+            this.previous = previous;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> State<T> initial(T value) {
+            return new State<>(value, (ConcurrentConnected<T>[]) NONE, 0, null);
+        }
+        /**
+         * drop everything below the newest state at or before floor, no running snapshot reads past it
+         * @return states left from this one down
+         */
+        private int trim(long floor) {
+            int n = 1;
+            for (State<T> s = this; s.previous != null; s = s.previous, n++) {
+                if (s.version <= floor) {
+                    s.previous = null;
+                    break;
+                }
+            }
+            return n;
+        }
+    }
+
+    /**
+     * subtree frozen at one moment: nodes, values and parent positions in pre-order
+     */
+    public static class Snapshot<T> implements Iterable<ConcurrentConnected<T>> {
+        private final List<ConcurrentConnected<T>> nodes = new ArrayList<>();
+        private final List<T> values = new ArrayList<>();
+        private int[] parents = new int[16];
+
+        private Snapshot(ConcurrentConnected<T> root, long version) {
+            Deque<ConcurrentConnected<T>> open = new ArrayDeque<>();
+            Deque<Integer> parentIndex = new ArrayDeque<>();
+            open.push(root);
+            parentIndex.push(-1);
+            while (!open.isEmpty()) {
+                ConcurrentConnected<T> c = open.pop();
+                int i = nodes.size();
+                if (i == parents.length) { parents = Arrays.copyOf(parents, i * 2); }
+                parents[i] = parentIndex.pop();
+                State<T> s = c.stateAt(version);
+                nodes.add(c);
+                values.add(s.value);
+                ConcurrentConnected<T>[] children = s.children;
+                for (int j = children.length - 1; j >= 0; j--) {
+                    open.push(children[j]);
+                    parentIndex.push(i);
+                }
+            }
+        }
+
+        //getter
+        public int size() { return nodes.size(); }
+        public ConcurrentConnected<T> node(int index) { return nodes.get(index); }
+        /**
+         * @return value when the snapshot was taken
+         */
+        public T value(int index) { return values.get(index); }
+        /**
+         * @return position of the parent, -1 for the snapshot root
+         */
+        public int parent(int index) {
+            Objects.checkIndex(index, nodes.size());
+            return parents[index];
+        }
+        public List<T> values() { return Collections.unmodifiableList(values); }
+        //end
+
+        @Override
+        public Iterator<ConcurrentConnected<T>> iterator() {
+            return Collections.unmodifiableList(nodes).iterator();
+        }
+        public Stream<ConcurrentConnected<T>> stream() {
+            return StreamSupport.stream(spliterator(), false);
+        }
+
+        /**
+         * plain single threaded copy with the snapshot values
+         */
+        public Connected<T> toConnected() {
+            List<Connected<T>> copy = new ArrayList<>(nodes.size());
+            for (int i = 0; i < nodes.size(); i++) {
+                Connected<T> c = new Connected<>(values.get(i));
+                if (parents[i] >= 0) { copy.get(parents[i]).adopt(c); }
+                copy.add(c);
+            }
+            return copy.get(0);
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package main.structure.tree;
 
 import java.util.*;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @SuppressWarnings("unused")
 public class Connected<T> {
@@ -27,12 +32,34 @@ public class Connected<T> {
     //fields
     //store value that's getting connected
     private T value = null;
+    //holds only this node's child set, it travels with the node,
+    //so grafting doesn't touch the subtree and a disowned subtree leaves nothing behind
     private Tree<T> tree = new Tree<>();
     private Connected<T> parent = null;
+    //nodes in this subtree, self inclusive, adopt and disown add or take the moved subtree along the line up
+    private int size = 1;
+    //getGeneration cache, trusted while checked is the current stamp of this node's epoch,
+    //written before checked so a reader that sees the stamp sees the depth
+    private int depth = 0;
+    private volatile long checked = -1;
+    //shared with every node this one was ever linked to, null until the first adopt
+    private Epoch epoch = null;
+    //sorted child indexes by key function, only the ones asked for through index
+    private Map<Function<? super T, ?>, KeyIndex<T>> indexes = null;
     //end
 
+    //hands out epoch stamps, unique so caches from two groups never look alike once they're joined
+    private static final AtomicLong STAMPS = new AtomicLong();
+
     //getter and setter
-    public void value(T value) { this.value = value; }
+    public void value(T value) {
+        // the parent's indexes are sorted by this value, take it out and put it back
+        Collection<KeyIndex<T>> indexed = parent == null || parent.indexes == null
+                ? Collections.emptyList() : parent.indexes.values();
+        indexed.forEach(index -> index.remove(this));
+        this.value = value;
+        indexed.forEach(index -> index.add(this));
+    }
     public T value() { return value; }
     //end
 
@@ -77,29 +104,57 @@ public class Connected<T> {
 
     public List<Connected<T>> childlessChild() {
         List<Connected<T>> list = new ArrayList<>();
-        for (Connected<T> c : child()) {
-            list.addAll(c.isChildless() ?
-                    Collections.singletonList(c) :
-                    c.childlessChild());
+        for (Iterator<Connected<T>> it = new PreOrder<>(this); it.hasNext(); ) {
+            Connected<T> c = it.next();
+            if (c != this && c.isChildless()) {
+                list.add(c);
+            }
         }
         return list;
     }
     public Connected<T> parentlessParent() {
-        return isOrphan() ? this : parent.parentlessParent();
+        Connected<T> c = this;
+        while (!c.isOrphan()) { c = c.parent; }
+        return c;
     }
 
-    public List<Connected<T>> slimTree(boolean childFirst) {
-        ArrayList<Connected<T>> out;
-        Connected<T> child = this;
-
-        for(out = new ArrayList<>(); !child.isOrphan(); child = child.parent) {
-            if (childFirst) {
-                out.add(child);
-            } else {
-                out.add(0, child);
-            }
-        } out.add(child);
+    //lazy views, nothing is collected up front, extra memory grows with depth only
+    /**
+     * Self inclusive, parents before children
+     */
+    public Stream<Connected<T>> preOrder() {
+        return stream(new PreOrder<>(this));
+    }
+    /**
+     * Self inclusive, children before parents
+     */
+    public Stream<Connected<T>> postOrder() {
+        return stream(new PostOrder<>(this));
+    }
+    /**
+     * Self inclusive, layer by layer, holds one layer at a time
+     */
+    public Stream<Connected<T>> breadthFirst() {
+        return stream(new BreadthFirst<>(this));
+    }
+    /**
+     * Self inclusive, no order, splits on sibling ranges and subtrees
+     */
+    public Stream<Connected<T>> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+    public Spliterator<Connected<T>> spliterator() {
+        return new Subtree<>(this);
+    }
+    private static <T> Stream<Connected<T>> stream(Iterator<Connected<T>> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
 
+    public List<Connected<T>> slimTree(boolean childFirst) {
+        ArrayList<Connected<T>> out = new ArrayList<>();
+        for (Connected<T> c = this; c != null; c = c.parent) { out.add(c); }
+        if (!childFirst) { Collections.reverse(out); }
         return out;
     }
 
@@ -113,24 +168,43 @@ public class Connected<T> {
      */
     public List<Connected<T>> multiLayerFilter(List<Predicate<T>> filters, boolean hasToReachTheEnd) {
         List<Connected<T>> result = new ArrayList<>(Collections.singletonList(this));
+        List<Connected<T>> next = new ArrayList<>();
 
         for (Predicate<T> filter : filters) {
-            result = result.stream()
-                    .flatMap(c -> c.child().stream()
-                            .filter(cc -> filter.test(cc.value))
-                    ).collect(Collectors.toList());
+            for (Connected<T> c : result) { c.select(filter, next); }
+            List<Connected<T>> swap = result;
+            result = next;
+            next = swap;
+            next.clear();
+            if (result.isEmpty()) { break; }
         }
 
-        return result.stream().filter(c -> !hasToReachTheEnd || c.isChildless()).collect(Collectors.toList());
+        if (hasToReachTheEnd) { result.removeIf(c -> !c.isChildless()); }
+        return result;
     }
+    /**
+     * every childless descendant whose whole line below this matched the filter
+     * @param filter filter
+     * @param eliminateFailedParent check this node's direct child too if true
+     * @return matched childless descendant
+     */
     public List<Connected<T>> allLayerFilter(Predicate<T> filter, boolean eliminateFailedParent) {
-        return child()
-                .stream()   //below, filter only apply if eliminateFailedParent is true
-                .filter(child -> !eliminateFailedParent || filter.test(child.value))
-                .flatMap(child -> child.isChildless() ?
-                        child().stream() :
-                        child.allLayerFilter(filter, true).stream())
-                .collect(Collectors.toList());
+        List<Connected<T>> result = new ArrayList<>();
+        Deque<Connected<T>> open = new ArrayDeque<>();
+        if (eliminateFailedParent) {
+            select(filter, open);
+        } else {
+            open.addAll(child());
+        }
+        while (!open.isEmpty()) {
+            Connected<T> c = open.pollLast();
+            if (c.isChildless()) {
+                result.add(c);
+                continue;
+            }
+            c.select(filter, open);
+        }
+        return result;
     }
 
     public boolean isOrphan() {
@@ -140,8 +214,99 @@ public class Connected<T> {
         return (child().size() == 0);
     }
 
+    /**
+     * build a sorted index of the children by key, KeyFilters with the same key function use it.
+     * queries never build one themselves, without an index every child is tested
+     * @param key key function, must give the same key for the same value
+     * @return this
+     */
+    public Connected<T> index(Function<? super T, ?> key) {
+        if (indexes == null) { indexes = new HashMap<>(); }
+        indexes.computeIfAbsent(key, k -> new KeyIndex<>(k, child()));
+        return this;
+    }
+    public Connected<T> dropIndexes() {
+        indexes = null;
+        return this;
+    }
+    /**
+     * children that pass the filter, a KeyFilter goes through the child index when there is one
+     */
+    private void select(Predicate<T> filter, Collection<Connected<T>> out) {
+        if (filter instanceof KeyFilter<T, ?> keyFilter && indexes != null) {
+            KeyIndex<T> index = indexes.get(keyFilter.key());
+            if (index != null) {
+                for (Set<Connected<T>> matched : keyFilter.select(index.children)) { out.addAll(matched); }
+                return;
+            }
+        }
+        for (Connected<T> c : child()) {
+            if (filter.test(c.value)) { out.add(c); }
+        }
+    }
+
+    /**
+     * cached, after a subtree moved a cache is checked against its parent's up to the nearest node
+     * checked since, only depths below the moved node change
+     */
     public int getGeneration() {
-        return ascent().isPresent() ? parent.getGeneration()+1 : 0;
+        if (epoch == null) { return 0; }
+        long now = epoch.find().stamp;
+        if (checked == now) { return depth; }
+        Deque<Connected<T>> line = new ArrayDeque<>();
+        Connected<T> c = this;
+        for (; c.checked != now && c.parent != null; c = c.parent) { line.push(c); }
+        if (c.checked != now) {
+            c.depth = 0;
+            c.checked = now;
+        }
+        for (int d = c.depth; !line.isEmpty(); ) {
+            c = line.pop();
+            // one below a checked parent, a node outside the moved subtree keeps its depth
+            if (c.depth != ++d) { c.depth = d; }
+            c.checked = now;
+        }
+        return depth;
+    }
+    /**
+     * kept up to date by adopt and disown
+     * @return nodes in this subtree, self inclusive
+     */
+    public int subtreeSize() {
+        return size;
+    }
+
+    /**
+     * @param generation how many generations up, 0 is this node
+     * @return the ancestor, empty if the line ends first
+     */
+    public Optional<Connected<T>> ancestor(int generation) {
+        Connected<T> c = this;
+        for (int i = 0; i < generation && c != null; i++) { c = c.parent; }
+        return Optional.ofNullable(c);
+    }
+    /**
+     * @return true if other is below this node, a node isn't its own ancestor
+     */
+    public boolean isAncestorOf(Connected<T> other) {
+        int d = other.getGeneration() - getGeneration();
+        return d > 0 && other.ancestor(d).orElse(null) == this;
+    }
+    /**
+     * @return deepest node both are in the subtree of, empty if they aren't in the same tree
+     */
+    public Optional<Connected<T>> lowestCommonAncestor(Connected<T> other) {
+        Connected<T> a = this;
+        Connected<T> b = other;
+        int da = a.getGeneration();
+        int db = b.getGeneration();
+        for (; da > db; da--) { a = a.parent; }
+        for (; db > da; db--) { b = b.parent; }
+        while (a != b) {
+            a = a.parent;
+            b = b.parent;
+        }
+        return Optional.ofNullable(a);
     }
 
     /**
@@ -156,28 +321,72 @@ public class Connected<T> {
     public Connected<T> adopt(T value) {
         return adopt(new Connected<>(value));
     }
+    /**
+     * adopt(T) that hands back the new child instead of this
+     */
+    Connected<T> spawn(T value) {
+        Connected<T> child = new Connected<>(value);
+        adopt(child);
+        return child;
+    }
+    /**
+     * constant time for any subtree size, a child that already has a parent is moved
+     * @param child child
+     * @return this
+     */
     public Connected<T> adopt(Connected<T> child) {
-        tree.layers().computeIfAbsent(this, k -> new HashSet<>());
-        tree.layers().get(this).add(child.adopted(this));
+        if (child.parent == this) { return this; }
+        if (child == this || (!child.isChildless() && child.isAncestorOf(this))) {
+            throw new IllegalArgumentException("can't adopt itself or an ancestor");
+        }
+        if (child.parent != null) {
+            child.parent.disown(child);
+        }
+        tree.layers().computeIfAbsent(this, k -> new HashSet<>()).add(child.adopted(this));
+        if (indexes != null) { indexes.values().forEach(index -> index.add(child)); }
+        resize(child.size);
+        moved(child, Epoch.join(this, child), getGeneration() + 1);
         return this;
     }
     public Connected<T> adopt(Collection<? extends Connected<T>> child) {
         child.forEach(this::adopt);
         return this;
     }
+    /**
+     * child side of adopt, only links the parent
+     * @param parent new parent
+     * @return this
+     */
     public Connected<T> adopted(Connected<T> parent) {
         this.parent = parent;
-        Set<Connected<T>> c = child();
-        tree = parent.tree;
-        adopt(c);
         return this;
     }
+    /**
+     * the child keeps its own subtree
+     * @param child child
+     * @return this
+     */
     public Connected<T> disown(Connected<T> child) {
+        if (child.parent != this) { return this; }
+        if (indexes != null) { indexes.values().forEach(index -> index.remove(child)); }
         child.parent = null;
-        child.tree = new Tree<>();
         tree.remove(this, child);
+        resize(-child.size);
+        moved(child, epoch.find(), 0);
         return this;
     }
+    // O(depth), the moved subtree isn't counted again
+    private void resize(int delta) {
+        for (Connected<T> c = this; c != null; c = c.parent) { c.size += delta; }
+    }
+    private static void moved(Connected<?> child, Epoch group, int depth) {
+        if (!child.isChildless()) {
+            // caches get checked against their parent's again, only the ones below child change
+            group.stamp = STAMPS.incrementAndGet();
+        }
+        child.depth = depth;
+        child.checked = group.stamp;
+    }
 
     //interaction
     /**
@@ -185,17 +394,256 @@ public class Connected<T> {
      * @param work work
      */
     public void parentsWork(Consumer<Connected<T>> work) {
-        if (!isOrphan()) {
-            parent.parentsWork(work);
-        }
-        work.accept(this);
+        Deque<Connected<T>> line = new ArrayDeque<>();
+        for (Connected<T> c = this; c != null; c = c.parent) { line.push(c); }
+        line.forEach(work);
     }
     /**
      * Self inclusive
      * @param task task
      */
     public void childLabor(Consumer<Connected<T>> task) {
-        child().forEach(c -> c.childLabor(task));
-        task.accept(this);
+        for (Iterator<Connected<T>> it = new PostOrder<>(this); it.hasNext(); ) {
+            task.accept(it.next());
+        }
+    }
+
+    /**
+     * Self inclusive, children before parents like childLabor,
+     * sibling subtrees run in parallel, a parent runs once all its descendants are done
+     * @param task task, must not change the tree
+     */
+    public void childLaborParallel(Consumer<Connected<T>> task) {
+        childLaborParallel(task, ForkJoinPool.commonPool());
+    }
+    public void childLaborParallel(Consumer<Connected<T>> task, ForkJoinPool pool) {
+        pool.invoke(new Labor<>(null, this, task));
+    }
+
+    //class
+    /**
+     * union-find over nodes that were linked, a parent and its child are always in one group.
+     * groups are joined by size and never split, so find is O(log n) and only reads
+     */
+    private static final class Epoch {
+        private Epoch parent = null;
+        private int size = 1;
+        //depth caches checked under another stamp are checked again, only meaningful on the group's root
+        private long stamp = STAMPS.incrementAndGet();
+
+        public Epoch find() {
+            Epoch e = this;
+            while (e.parent != null) { e = e.parent; }
+            return e;
+        }
+
+        /**
+         * @return the group both are in after the join
+         */
+        public static Epoch join(Connected<?> parent, Connected<?> child) {
+            if (parent.epoch == null) { parent.epoch = new Epoch(); }
+            Epoch p = parent.epoch.find();
+            if (child.epoch == null) {
+                child.epoch = p;
+                return p;
+            }
+            Epoch c = child.epoch.find();
+            if (c == p) { return p; }
+            Epoch root = p.size >= c.size ? p : c;
+            Epoch other = root == p ? c : p;
+            other.parent = root;
+            root.size += other.size;
+            // depths on the parent's side didn't change, keep them valid
+            root.stamp = p.stamp;
+            return root;
+        }
+    }
+
+    private static class KeyIndex<T> {
+        private final Function<? super T, ?> key;
+        private final NavigableMap<Object, Set<Connected<T>>> children = new TreeMap<>(KeyFilter.ORDER);
+
+        public KeyIndex(Function<? super T, ?> key, Collection<Connected<T>> child) {
+            this.key = key;
+            child.forEach(this::add);
+        }
+
+        public void add(Connected<T> child) {
+            children.computeIfAbsent(key.apply(child.value), k -> new HashSet<>()).add(child);
+        }
+        public void remove(Connected<T> child) {
+            Object k = key.apply(child.value);
+            Set<Connected<T>> same = children.get(k);
+            if (same != null && same.remove(child) && same.isEmpty()) { children.remove(k); }
+        }
+    }
+
+    // completes upward instead of joining, so deep trees don't pile up on the thread stack
+    private static class Labor<T> extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final Connected<T> node;
+        private final Consumer<Connected<T>> task;
+
+        public Labor(CountedCompleter<?> completer, Connected<T> node, Consumer<Connected<T>> task) {
+            super(completer);
+            this.node = node;
+            this.task = task;
+        }
+
+        @Override
+        public void compute() {
+            for (Connected<T> child : node.child()) {
+                if (child.isChildless()) {
+                    task.accept(child);
+                } else {
+                    addToPendingCount(1);
+                    new Labor<>(this, child, task).fork();
+                }
+            }
+            tryComplete();
+        }
+
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            task.accept(node);
+        }
+    }
+
+    private static class Subtree<T> implements Spliterator<Connected<T>> {
+        //subtree roots, each one is emitted and then replaced by its children
+        private final Deque<Connected<T>> open;
+        //already split into its children, only the node itself is left
+        private final Deque<Connected<T>> single = new ArrayDeque<>();
+        private long estimate;
+
+        public Subtree(Connected<T> root) {
+            this(new ArrayDeque<>(List.of(root)), root.subtreeSize());
+        }
+        private Subtree(Deque<Connected<T>> open, long estimate) {
+            this.open = open;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Connected<T>> action) {
+            Connected<T> c;
+            if (!single.isEmpty()) {
+                c = single.pop();
+            } else if (!open.isEmpty()) {
+                c = open.pop();
+                for (Connected<T> child : c.child()) { open.push(child); }
+            } else {
+                return false;
+            }
+            estimate--;
+            action.accept(c);
+            return true;
+        }
+
+        @Override
+        public Spliterator<Connected<T>> trySplit() {
+            if (open.size() == 1) {
+                Connected<T> c = open.pop();
+                single.push(c);
+                for (Connected<T> child : c.child()) { open.push(child); }
+            }
+            if (open.size() < 2) { return null; }
+            // hand off the oldest half, those were pushed first and tend to be the bigger subtrees
+            Deque<Connected<T>> half = new ArrayDeque<>();
+            long size = 0;
+            for (int i = open.size() / 2; i > 0; i--) {
+                Connected<T> c = open.removeLast();
+                size += c.subtreeSize();
+                half.push(c);
+            }
+            estimate -= size;
+            return new Subtree<>(half, size);
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+        @Override
+        public int characteristics() {
+            return NONNULL | DISTINCT;
+        }
+    }
+
+    private static class PreOrder<T> implements Iterator<Connected<T>> {
+        private final Deque<Iterator<Connected<T>>> stack = new ArrayDeque<>();
+        private Connected<T> next;
+
+        public PreOrder(Connected<T> root) {
+            next = root;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !stack.isEmpty()) {
+                if (stack.peek().hasNext()) {
+                    next = stack.peek().next();
+                } else {
+                    stack.pop();
+                }
+            }
+            return next != null;
+        }
+        @Override
+        public Connected<T> next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            Connected<T> c = next;
+            next = null;
+            if (!c.isChildless()) { stack.push(c.child().iterator()); }
+            return c;
+        }
+    }
+
+    private static class PostOrder<T> implements Iterator<Connected<T>> {
+        private final Deque<Connected<T>> nodes = new ArrayDeque<>();
+        private final Deque<Iterator<Connected<T>>> children = new ArrayDeque<>();
+
+        public PostOrder(Connected<T> root) {
+            push(root);
+        }
+
+        private void push(Connected<T> c) {
+            nodes.push(c);
+            children.push(c.child().iterator());
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !nodes.isEmpty();
+        }
+        @Override
+        public Connected<T> next() {
+            if (nodes.isEmpty()) { throw new NoSuchElementException(); }
+            while (children.peek().hasNext()) {
+                push(children.peek().next());
+            }
+            children.pop();
+            return nodes.pop();
+        }
+    }
+
+    private static class BreadthFirst<T> implements Iterator<Connected<T>> {
+        private final Deque<Connected<T>> open = new ArrayDeque<>();
+
+        public BreadthFirst(Connected<T> root) {
+            open.add(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !open.isEmpty();
+        }
+        @Override
+        public Connected<T> next() {
+            Connected<T> c = open.remove();
+            open.addAll(c.child());
+            return c;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package main.structure.tree;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * filter declared as an equality or range check on a key of the value,
+ * Connected answers it from a sorted child index instead of testing every child once Connected.index built one.
+ * the index is found by the key function instance, so query with the same function
+ * (a constant or one method reference) the index was built with
+ * @param <T> node value
+ * @param <K> key, compared by natural order, null sorts first
+ */
+public class KeyFilter<T, K> implements Predicate<T> {
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static final Comparator<Object> ORDER = Comparator.nullsFirst((a, b) -> ((Comparable) a).compareTo(b));
+    private static final Function<Object, Object> IDENTITY = v -> v;
+
+    //fields
+    private final Function<? super T, ? extends K> key;
+    private final boolean exact;
+    private final K low;
+    private final boolean lowBounded;
+    private final boolean lowInclusive;
+    private final K high;
+    private final boolean highBounded;
+    private final boolean highInclusive;
+    //end
+
+    private KeyFilter(Function<? super T, ? extends K> key, boolean exact,
+                      K low, boolean lowBounded, boolean lowInclusive,
+                      K high, boolean highBounded, boolean highInclusive) {
+        this.key = key;
+        this.exact = exact;
+        this.low = low;
+        this.lowBounded = lowBounded;
+        this.lowInclusive = lowInclusive;
+        this.high = high;
+        this.highBounded = highBounded;
+        this.highInclusive = highInclusive;
+        if (lowBounded && highBounded && ORDER.compare(low, high) > 0) {
+            throw new IllegalArgumentException("range: " + low + " > " + high);
+        }
+    }
+
+    //static
+    /**
+     * @return filter matching values whose key equals value
+     */
+    public static <T, K extends Comparable<? super K>> KeyFilter<T, K> equal(Function<? super T, ? extends K> key, K value) {
+        return new KeyFilter<>(key, true, value, true, true, value, true, true);
+    }
+    /**
+     * the value is its own key
+     */
+    public static <T extends Comparable<? super T>> KeyFilter<T, T> equal(T value) {
+        return equal(identity(), value);
+    }
+    /**
+     * @param from lowest key, inclusive, null for no lower bound
+     * @param to highest key, exclusive, null for no upper bound
+     */
+    public static <T, K extends Comparable<? super K>> KeyFilter<T, K> range(Function<? super T, ? extends K> key, K from, K to) {
+        return range(key, from, true, to, false);
+    }
+    public static <T, K extends Comparable<? super K>> KeyFilter<T, K> range(Function<? super T, ? extends K> key,
+                                                                            K from, boolean fromInclusive,
+                                                                            K to, boolean toInclusive) {
+        return new KeyFilter<>(key, false, from, from != null, fromInclusive, to, to != null, toInclusive);
+    }
+    /**
+     * the value is its own key
+     */
+    public static <T extends Comparable<? super T>> KeyFilter<T, T> range(T from, T to) {
+        return range(identity(), from, to);
+    }
+    /**
+     * the key function the value-only factories use, pass it to Connected.index to share their index
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Function<T, T> identity() {
+        return (Function<T, T>) IDENTITY;
+    }
+
+    //getter
+    Function<? super T, ? extends K> key() { return key; }
+    //end
+
+    @Override
+    public boolean test(T value) {
+        K k = key.apply(value);
+        if (lowBounded) {
+            int c = ORDER.compare(k, low);
+            if (c < 0 || (c == 0 && !lowInclusive)) { return false; }
+        }
+        if (highBounded) {
+            int c = ORDER.compare(k, high);
+            return c < 0 || (c == 0 && highInclusive);
+        }
+        return true;
+    }
+
+    /**
+     * @param index sorted by key with ORDER
+     * @return entries of the matching keys, a view of the index
+     */
+    <S> Collection<S> select(NavigableMap<Object, S> index) {
+        if (exact) {
+            S s = index.get(low);
+            return s == null ? List.of() : List.of(s);
+        }
+        if (lowBounded && highBounded) {
+            return index.subMap(low, lowInclusive, high, highInclusive).values();
+        }
+        if (lowBounded) { return index.tailMap(low, lowInclusive).values(); }
+        if (highBounded) { return index.headMap(high, highInclusive).values(); }
+        return index.values();
+    }
+}
@@ -0,0 +1,250 @@
+package main.structure.tree;
+
+import main.structure.ValueCodec;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * binary snapshot of a Connected tree.
+ * layout, big endian:
+ * header (magic, version, node count, reserved, position of the offset table),
+ * parent index per node in pre-order (-1 for the root), subtree size per node,
+ * value bytes (a presence byte then the codec bytes), value offsets (count + 1, relative to the value bytes).
+ * children of node i are i + 1, then each next one a subtree size further, so nothing needs rebuilding to walk it
+ */
+public final class TreeFile {
+    private static final int MAGIC = 0x43545245; // CTRE
+    private static final int VERSION = 1;
+    private static final int HEADER = 24;
+
+    private TreeFile() {}
+
+    //static
+    public static <T> void write(Connected<T> root, Path path, ValueCodec<? super T> codec) throws IOException {
+        int n = root.subtreeSize();
+        int[] parents = new int[n];
+        int[] sizes = new int[n];
+        long[] offsets = new long[n + 1];
+        long valueStart = HEADER + 8L * n;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(valueStart);
+            Counting counting = new Counting(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            DataOutputStream values = new DataOutputStream(counting);
+
+            // pre-order with the parent's position carried along
+            Deque<Connected<T>> open = new ArrayDeque<>();
+            Deque<Integer> parentIndex = new ArrayDeque<>();
+            open.push(root);
+            parentIndex.push(-1);
+            int i = 0;
+            while (!open.isEmpty()) {
+                Connected<T> c = open.pop();
+                if (i == n) { throw new ConcurrentModificationException("tree changed while writing"); }
+                parents[i] = parentIndex.pop();
+                sizes[i] = c.subtreeSize();
+                offsets[i] = counting.count;
+                T value = c.value();
+                if (value == null) {
+                    values.writeByte(0);
+                } else {
+                    values.writeByte(1);
+                    codec.encode(value, values);
+                }
+                for (Connected<T> child : c.child()) {
+                    open.push(child);
+                    parentIndex.push(i);
+                }
+                i++;
+            }
+            values.flush();
+            offsets[n] = counting.count;
+            long offsetStart = valueStart + counting.count;
+
+            ByteBuffer table = ByteBuffer.allocate(8 * (n + 1));
+            table.asLongBuffer().put(offsets);
+            writeFully(channel, table, offsetStart);
+
+            ByteBuffer structure = ByteBuffer.allocate(HEADER + 8 * n);
+            structure.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).putLong(offsetStart);
+            structure.asIntBuffer().put(parents).put(sizes);
+            structure.rewind();
+            writeFully(channel, structure, 0);
+        }
+    }
+
+    /**
+     * read the whole tree back into Connected nodes
+     */
+    public static <T> Connected<T> read(Path path, ValueCodec<? extends T> codec) throws IOException {
+        return TreeFile.<T>map(path, codec).toConnected();
+    }
+
+    /**
+     * map the file read only, nothing is decoded until it's asked for
+     */
+    public static <T> Mapped<T> map(Path path, ValueCodec<? extends T> codec) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) { throw new EOFException("truncated header"); }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) { throw new IOException("not a tree file: " + path); }
+            int version = header.getInt();
+            if (version != VERSION) { throw new IOException("unsupported tree file version: " + version); }
+            int n = header.getInt();
+            header.getInt();
+            long offsetStart = header.getLong();
+            long valueStart = HEADER + 8L * n;
+            long valueLength = offsetStart - valueStart;
+            if (n < 1 || valueLength < 0 || offsetStart + 8L * (n + 1) > channel.size()) {
+                throw new IOException("corrupt tree file: " + path);
+            }
+            if (8L * (n + 1) > Integer.MAX_VALUE || valueLength > Integer.MAX_VALUE) {
+                throw new IOException("tree file too large to map: " + path);
+            }
+            IntBuffer structure = channel.map(FileChannel.MapMode.READ_ONLY, HEADER, 8L * n).asIntBuffer();
+            MappedByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, valueStart, valueLength);
+            LongBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, offsetStart, 8L * (n + 1)).asLongBuffer();
+            return new Mapped<>(n, structure, values, offsets, codec);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    //class
+    /**
+     * read only view straight over the mapped file, a few bytes of heap per handle
+     */
+    public static class Mapped<T> {
+        private final int size;
+        //parents then subtree sizes
+        private final IntBuffer structure;
+        private final ByteBuffer values;
+        private final LongBuffer offsets;
+        private final ValueCodec<? extends T> codec;
+
+        private Mapped(int size, IntBuffer structure, ByteBuffer values, LongBuffer offsets, ValueCodec<? extends T> codec) {
+            this.size = size;
+            this.structure = structure;
+            this.values = values;
+            this.offsets = offsets;
+            this.codec = codec;
+        }
+
+        //getter
+        public int size() { return size; }
+        public int root() { return 0; }
+        public int parent(int node) { return structure.get(check(node)); }
+        public int subtreeSize(int node) { return structure.get(size + check(node)); }
+        /**
+         * decoded on every call
+         */
+        public T value(int node) {
+            ByteBuffer in = values.duplicate().position((int) offsets.get(check(node)));
+            return in.get() == 0 ? null : codec.decode(in);
+        }
+        //end
+
+        public int[] children(int node) {
+            int end = node + subtreeSize(node);
+            int count = 0;
+            for (int c = node + 1; c < end; c += subtreeSize(c)) { count++; }
+            int[] children = new int[count];
+            for (int c = node + 1, i = 0; c < end; c += subtreeSize(c)) { children[i++] = c; }
+            return children;
+        }
+        public Node node(int node) {
+            return new Node(check(node));
+        }
+
+        public Connected<T> toConnected() {
+            return toConnected(0);
+        }
+        /**
+         * materialize one subtree, it's a contiguous run of the pre-order
+         */
+        public Connected<T> toConnected(int node) {
+            int n = subtreeSize(node);
+            List<Connected<T>> built = new ArrayList<>(n);
+            built.add(new Connected<>(value(node)));
+            for (int i = 1; i < n; i++) {
+                built.add(built.get(parent(node + i) - node).spawn(value(node + i)));
+            }
+            return built.get(0);
+        }
+
+        private int check(int node) {
+            if (node < 0 || node >= size) {
+                throw new IndexOutOfBoundsException("node %d of %d".formatted(node, size));
+            }
+            return node;
+        }
+
+        /**
+         * handle over one position, the Connected-like view of a node
+         */
+        public class Node {
+            private final int index;
+
+            private Node(int index) {
+                this.index = index;
+            }
+
+            public int index() { return index; }
+            public T value() { return Mapped.this.value(index); }
+            public int subtreeSize() { return Mapped.this.subtreeSize(index); }
+            public Optional<Node> ascent() {
+                int p = parent(index);
+                return p < 0 ? Optional.empty() : Optional.of(new Node(p));
+            }
+            public List<Node> child() {
+                List<Node> list = new ArrayList<>();
+                for (int c : children(index)) { list.add(new Node(c)); }
+                return list;
+            }
+            public boolean isChildless() { return subtreeSize() == 1; }
+            public Connected<T> toConnected() { return Mapped.this.toConnected(index); }
+
+            @Override public boolean equals(Object o) {
+                return o instanceof Mapped<?>.Node n && n.mapped() == Mapped.this && n.index == index;
+            }
+            @Override public int hashCode() { return index; }
+            @Override public String toString() { return index + " -> " + value(); }
+
+            private Mapped<T> mapped() { return Mapped.this; }
+        }
+    }
+
+    private static class Counting extends FilterOutputStream {
+        private long count = 0;
+
+        public Counting(OutputStream out) {
+            super(out);
+        }
+
+        @Override public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+        @Override public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
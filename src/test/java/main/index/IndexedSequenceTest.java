@@ -0,0 +1,115 @@
+package main.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedSequenceTest {
+    @Test
+    void sameAsArrayList() {
+        Random random = new Random(25);
+        IndexedSequence<Item> sequence = new IndexedSequence<>();
+        List<Item> reference = new ArrayList<>();
+        // the reference keeps its own copy of each index, offsets are applied to it eagerly
+        List<Integer> indexes = new ArrayList<>();
+        for (int round = 0; round < 5000; round++) {
+            int size = reference.size();
+            switch (random.nextInt(size == 0 ? 1 : 7)) {
+                case 0 -> {
+                    int position = random.nextInt(size + 1);
+                    Item item = new Item(random.nextInt(1000));
+                    sequence.add(position, item);
+                    reference.add(position, item);
+                    indexes.add(position, item.index);
+                }
+                case 1 -> {
+                    int position = random.nextInt(size);
+                    assertSame(reference.remove(position), sequence.remove(position));
+                    indexes.remove(position);
+                }
+                case 2 -> {
+                    int from = random.nextInt(size + 1);
+                    int to = from + random.nextInt(size - from + 1);
+                    int offset = random.nextInt(21) - 10;
+                    sequence.offset(from, to, offset);
+                    for (int i = from; i < to; i++) { indexes.set(i, indexes.get(i) + offset); }
+                }
+                case 3 -> {
+                    int from = random.nextInt(size + 1);
+                    int offset = random.nextInt(21) - 10;
+                    sequence.offset(from, offset);
+                    for (int i = from; i < size; i++) { indexes.set(i, indexes.get(i) + offset); }
+                }
+                case 4 -> {
+                    int offset = random.nextInt(21) - 10;
+                    sequence.rebase(offset);
+                    indexes.replaceAll(i -> i + offset);
+                }
+                default -> {
+                    int position = random.nextInt(size);
+                    assertSame(reference.get(position), sequence.get(position));
+                    assertEquals(indexes.get(position), sequence.index(position));
+                }
+            }
+            assertEquals(reference.size(), sequence.size());
+        }
+        List<Integer> seen = new ArrayList<>();
+        Iterator<Item> it = sequence.iterator();
+        for (Item expected : reference) {
+            Item item = it.next();
+            assertSame(expected, item);
+            seen.add(item.index);
+        }
+        assertFalse(it.hasNext());
+        assertEquals(indexes, seen);
+    }
+
+    @Test
+    void searchOnSortedIndexes() {
+        Random random = new Random(8);
+        IndexedSequence<Item> sequence = new IndexedSequence<>();
+        int[] sorted = new int[500];
+        for (int i = 0, index = 0; i < sorted.length; i++) {
+            index += 1 + random.nextInt(4);
+            sorted[i] = index;
+            sequence.add(new Item(index));
+        }
+        for (int round = 0; round < 200; round++) {
+            // shifting a suffix up keeps the order
+            int from = random.nextInt(sorted.length + 1);
+            int offset = random.nextInt(5);
+            sequence.offset(from, offset);
+            for (int i = from; i < sorted.length; i++) { sorted[i] += offset; }
+            int wanted = random.nextInt(sorted[sorted.length - 1] + 3);
+            int expected = Arrays.binarySearch(sorted, wanted);
+            assertEquals(expected, sequence.search(wanted), () -> "index " + wanted);
+        }
+    }
+
+    @Test
+    void outOfRange() {
+        IndexedSequence<Item> sequence = new IndexedSequence<>(List.of(new Item(0), new Item(1)));
+        assertThrows(IndexOutOfBoundsException.class, () -> sequence.get(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> sequence.add(3, new Item(2)));
+        assertThrows(IndexOutOfBoundsException.class, () -> sequence.remove(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> sequence.offset(1, 0, 1));
+        assertThrows(NoSuchElementException.class, () -> {
+            Iterator<Item> it = new IndexedSequence<Item>().iterator();
+            it.next();
+        });
+    }
+
+    //class
+    private static class Item implements Indexed {
+        private int index;
+
+        Item(int index) {
+            this.index = index;
+        }
+
+        @Override public int index() { return index; }
+        @Override public void index(int index) { this.index = index; }
+    }
+}
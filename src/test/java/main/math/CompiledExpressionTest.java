@@ -0,0 +1,65 @@
+package main.math;
+
+import main.math.ScientificCalculation.Function;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledExpressionTest {
+    private static final int BLOCK = CompiledExpression.BLOCK;
+    // around block and chunk edges, most of them not a multiple of BLOCK
+    private static final int[] ROWS = {0, 1, BLOCK - 1, BLOCK, BLOCK + 1, 3 * BLOCK + 17,
+            CompiledExpression.DEFAULT_CHUNK * 2 + 5};
+
+    @Test
+    void batchAndParallelMatchScalar() {
+        CompiledExpression e = new Function("sin(x) * y + x ^ 2 - y / 3 + 2").compile();
+        e.jitThreshold(-1);
+        Random random = new Random(5);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (int rows : ROWS) {
+                double[][] columns = new double[2][rows];
+                double[] expected = new double[rows];
+                for (int i = 0; i < rows; i++) {
+                    columns[0][i] = random.nextDouble() * 20 - 10;
+                    columns[1][i] = random.nextDouble() * 20 - 10;
+                    expected[i] = e.evaluate(columns[0][i], columns[1][i]);
+                }
+                double[] out = new double[rows];
+                e.evaluate(columns, out);
+                assertArrayEquals(expected, out, "batch, rows " + rows);
+
+                out = new double[rows];
+                e.evaluateParallel(columns, out);
+                assertArrayEquals(expected, out, "common pool, rows " + rows);
+                for (int chunk : new int[] {1, 100, 2 * BLOCK + 3}) {
+                    if (rows > 5000 && chunk == 1) { continue; }
+                    out = new double[rows];
+                    e.evaluateParallel(columns, out, ForkJoinPool.commonPool(), chunk);
+                    assertArrayEquals(expected, out, "fork join, rows " + rows + ", chunk " + chunk);
+                    out = new double[rows];
+                    e.evaluateParallel(columns, out, executor, chunk);
+                    assertArrayEquals(expected, out, "executor, rows " + rows + ", chunk " + chunk);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void columnsAreChecked() {
+        CompiledExpression e = new Function("x + y").compile();
+        assertThrows(IllegalArgumentException.class, () -> e.evaluate(new double[1][4], new double[4]));
+        assertThrows(IllegalArgumentException.class, () -> e.evaluate(new double[][] {new double[4], new double[3]},
+                new double[4]));
+        assertThrows(IllegalArgumentException.class, () -> e.evaluateParallel(new double[2][4], new double[4],
+                ForkJoinPool.commonPool(), 0));
+    }
+}
@@ -0,0 +1,86 @@
+package main.math;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionCacheTest {
+    @Test
+    void whitespaceOnlyDifferencesShareOneEntry() {
+        ExpressionCache cache = new ExpressionCache(16);
+        assertEquals("x + 1", ExpressionCache.normalize("  x \t+\n 1 "));
+        CompiledExpression first = cache.compile("x + 1");
+        assertSame(first, cache.compile(" x  +\t1\n"));
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.size());
+        assertEquals(3, first.evaluate(2));
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvicted() {
+        ExpressionCache cache = new ExpressionCache(2, 1);
+        CompiledExpression a = cache.compile("x + 1");
+        CompiledExpression b = cache.compile("x + 2");
+        cache.compile("x + 1");
+        cache.compile("x + 3");
+        assertEquals(1, cache.evictions());
+        assertEquals(2, cache.size());
+        assertSame(a, cache.compile("x + 1"));
+        assertNotSame(b, cache.compile("x + 2"));
+        assertEquals(2, cache.evictions());
+    }
+
+    @Test
+    void neverHoldsMoreThanCapacity() {
+        for (int capacity : new int[] {1, 3, 5, 17, 100}) {
+            ExpressionCache cache = new ExpressionCache(capacity, 16);
+            for (int i = 0; i < 500; i++) { cache.compile("x * " + i); }
+            assertTrue(cache.size() <= capacity, () -> "capacity " + capacity + ", size " + cache.size());
+            assertEquals(500 - cache.size(), cache.evictions());
+        }
+    }
+
+    @Test
+    void threadsShareOneCompiledInstance() throws Exception {
+        ExpressionCache cache = new ExpressionCache(64);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CyclicBarrier start = new CyclicBarrier(threads);
+            List<Future<CompiledExpression>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String spacing = " ".repeat(t + 1);
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return cache.compile("sin(x)" + spacing + "* 2");
+                }));
+            }
+            CompiledExpression shared = results.get(0).get();
+            for (Future<CompiledExpression> result : results) { assertSame(shared, result.get()); }
+            assertEquals(1, cache.size());
+            assertEquals(threads, cache.hits() + cache.misses());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void invalidateAndClear() {
+        ExpressionCache cache = new ExpressionCache(16);
+        CompiledExpression a = cache.compile("x - 1");
+        CompiledExpression b = cache.compile("x - 2");
+        cache.invalidate("  x   - 1 ");
+        assertEquals(1, cache.size());
+        assertNotSame(a, cache.compile("x - 1"));
+        assertSame(b, cache.compile("x - 2"));
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNotSame(b, cache.compile("x - 2"));
+        assertEquals(0, cache.evictions());
+    }
+}
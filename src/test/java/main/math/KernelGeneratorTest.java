@@ -0,0 +1,77 @@
+package main.math;
+
+import main.math.ScientificCalculation.Function;
+import main.math.ScientificCalculation.MergeOperator;
+import main.math.ScientificCalculation.UniOperator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KernelGeneratorTest {
+    private static final String[] VARIABLES = {"x", "y", "z"};
+
+    @Test
+    void generatedKernelMatchesInterpreter() {
+        Random random = new Random(8);
+        for (int round = 0; round < 500; round++) {
+            String input = expression(random, 4);
+            CompiledExpression interpreted = new Function(input).compile();
+            interpreted.jitThreshold(-1);
+            CompiledExpression generated = new Function(input).compile();
+            assertTrue(generated.promote(), input);
+
+            double[] bindings = new double[generated.variables().size()];
+            for (int sample = 0; sample < 20; sample++) {
+                for (int i = 0; i < bindings.length; i++) { bindings[i] = random.nextDouble() * 20 - 10; }
+                assertEquals(interpreted.evaluate(bindings), generated.evaluate(bindings), input);
+            }
+        }
+    }
+
+    @Test
+    void promotesAfterThreshold() {
+        CompiledExpression e = new Function("x ^ 2 - 3 * x").compile();
+        e.jitThreshold(10);
+        for (int i = 0; i < 10; i++) { assertEquals(i * i - 3 * i, e.evaluate(i)); }
+        e.evaluate(0);
+        assertTrue(e.isPromoted());
+        assertEquals(4, e.evaluate(4));
+    }
+
+    @Test
+    void batchThroughKernel() {
+        CompiledExpression e = new Function("sin(x) * y + 1").compile();
+        assertTrue(e.promote());
+        double[] x = new double[3000];
+        double[] y = new double[x.length];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = i * 0.01;
+            y[i] = i % 7;
+        }
+        double[] out = new double[x.length];
+        e.evaluate(new double[][] {x, y}, out);
+        for (int i = 0; i < x.length; i++) { assertEquals(e.evaluate(x[i], y[i]), out[i], 1e-12); }
+    }
+
+    //static
+    private static String expression(Random random, int depth) {
+        StringBuilder out = new StringBuilder(operand(random, depth));
+        for (int n = random.nextInt(4); n > 0; n--) {
+            MergeOperator op = MergeOperator.values()[random.nextInt(MergeOperator.values().length)];
+            out.append(' ').append(op.syntax()[0]).append(' ').append(operand(random, depth));
+        }
+        return out.toString();
+    }
+    private static String operand(Random random, int depth) {
+        int pick = depth == 0 ? random.nextInt(2) : random.nextInt(4);
+        return switch (pick) {
+            case 0 -> Integer.toString(random.nextInt(100)) + (random.nextBoolean() ? "." + random.nextInt(100) : "");
+            case 1 -> VARIABLES[random.nextInt(VARIABLES.length)];
+            case 2 -> UniOperator.values()[random.nextInt(UniOperator.values().length)].syntax()[0]
+                    + "(" + expression(random, depth - 1) + ")";
+            default -> "(" + expression(random, depth - 1) + ")";
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package main.math;
+
+import main.math.ScientificCalculation.Function;
+import main.math.ScientificCalculation.MergeOperator;
+import main.math.ScientificCalculation.UniOperator;
+import main.math.ScientificCalculation.Variable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScientificCalculationTest {
+    @Test
+    void keywordBeforeDigitsIsItsOwnToken() {
+        List<?> content = new Function("sin3").content();
+        assertEquals(2, content.size());
+        assertSame(UniOperator.SIN, content.get(0));
+        assertEquals(Math.sin(3), new Function("sin3").compile().evaluate(), 1e-12);
+
+        content = new Function("2times3").content();
+        assertSame(MergeOperator.MULTIPLY, content.get(1));
+        assertEquals(6, new Function("2times3").compile().evaluate());
+        assertEquals(6, new Function("2x3").compile().evaluate());
+    }
+
+    @Test
+    void wordsWithDigitsAreVariables() {
+        Function f = new Function("x1 + 2 * y_2");
+        assertEquals(List.of("x1", "y_2"), f.variables());
+        assertInstanceOf(Variable.class, f.content().get(0));
+        assertEquals(11, f.compile().evaluate(3, 4));
+        // a merge keyword at operand position is a name, not an operator
+        assertEquals(List.of("x2"), new Function("x2 x 2").variables());
+    }
+
+    @Test
+    void numbers() {
+        assertEquals(0.1 + 0.2, new Function("0.1 + 0.2").compile().evaluate());
+        assertEquals(12345678901234567.5, new Function("12345678901234567.5").compile().evaluate());
+    }
+
+    @Test
+    void unknownCharacter() {
+        assertThrows(NumberFormatException.class, () -> new Function("1 # 2"));
+    }
+
+    // components in error messages read the way they were written
+    @Test
+    void errorsShowSource() {
+        NumberFormatException e = assertThrows(NumberFormatException.class, () -> new Function("2 (x * (1 - y))").compile());
+        assertEquals("unexpected component: (x * (1.0 - y))", e.getMessage());
+        e = assertThrows(NumberFormatException.class, () -> new Function("2 sin 3").compile());
+        assertEquals("unexpected component: sin", e.getMessage());
+        e = assertThrows(NumberFormatException.class, () -> new Function("* 2").compile());
+        assertEquals("operand expected, got: *", e.getMessage());
+    }
+}
@@ -0,0 +1,78 @@
+package main.structure.connect.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHashNetTest {
+    private static final int THREADS = 8;
+
+    @Test
+    void concurrentInsertsKeepEveryPath() throws Exception {
+        ConcurrentHashNet<Integer> net = new ConcurrentHashNet<>();
+        List<Set<List<Integer>>> perThread = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            // same seed range for every thread, so most prefixes are extended by several at once
+            Random random = new Random(21 + t % 2);
+            Set<List<Integer>> paths = new HashSet<>();
+            for (int i = 0; i < 3000; i++) {
+                List<Integer> path = new ArrayList<>();
+                for (int n = 1 + random.nextInt(6); n > 0; n--) { path.add(random.nextInt(4)); }
+                paths.add(path);
+            }
+            perThread.add(paths);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CyclicBarrier start = new CyclicBarrier(THREADS);
+            List<Future<?>> done = new ArrayList<>();
+            for (Set<List<Integer>> paths : perThread) {
+                done.add(pool.submit(() -> {
+                    start.await();
+                    for (List<Integer> path : paths) {
+                        net.insert(path);
+                        // a path is visible to its own thread right after insert
+                        assertTrue(net.contains(path));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : done) { f.get(); }
+        } finally {
+            pool.shutdown();
+        }
+        Set<List<Integer>> union = perThread.stream().flatMap(Set::stream).collect(Collectors.toSet());
+        assertEquals(union, net.paths().collect(Collectors.toSet()));
+        for (List<Integer> path : union) { assertEquals(path, net.find(path).backtrack()); }
+    }
+
+    @Test
+    void sameValueGivesSameChild() throws Exception {
+        ConcurrentHashNet<String> net = new ConcurrentHashNet<>();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < 200; round++) {
+                String value = "v" + round;
+                CyclicBarrier start = new CyclicBarrier(THREADS);
+                List<Future<Net.Node<String>>> children = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    children.add(pool.submit(() -> {
+                        start.await();
+                        return net.origin().extend(value);
+                    }));
+                }
+                Net.Node<String> first = children.get(0).get();
+                for (Future<Net.Node<String>> child : children) { assertSame(first, child.get()); }
+                assertSame(net.origin(), first.parent());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(200, net.origin().children().size());
+        assertNull(net.origin().getChild(null));
+    }
+}
@@ -0,0 +1,86 @@
+package main.structure.connect.net;
+
+import main.structure.ValueCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DawgNetTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void freezeAndMapRoundTrip() throws IOException {
+        Random random = new Random(24);
+        Net<String> net = new HashNet<>();
+        Set<List<String>> inserted = new HashSet<>();
+        String[] alphabet = {"a", "b", "c", "d"};
+        for (int i = 0; i < 3000; i++) {
+            List<String> path = new ArrayList<>();
+            for (int n = 1 + random.nextInt(8); n > 0; n--) { path.add(alphabet[random.nextInt(alphabet.length)]); }
+            net.insert(path);
+            inserted.add(path);
+        }
+        Path file = dir.resolve("net.dawg");
+        int states = DawgNet.freeze(net, file, ValueCodec.STRING);
+        DawgNet<String> dawg = DawgNet.map(file, ValueCodec.STRING);
+
+        assertEquals(states, dawg.stateCount());
+        assertTrue(states < nodes(net.origin()), "identical subtrees should be shared");
+        assertEquals(inserted, dawg.paths().collect(Collectors.toSet()));
+        for (int i = 0; i < 2000; i++) {
+            List<String> path = new ArrayList<>();
+            for (int n = random.nextInt(10); n > 0; n--) { path.add(alphabet[random.nextInt(alphabet.length)]); }
+            assertEquals(net.contains(path), dawg.contains(path), path::toString);
+            Net.Node<String> expected = net.longestPrefixMatch(path);
+            Net.Node<String> actual = dawg.longestPrefixMatch(path);
+            assertEquals(expected == null ? null : expected.backtrack(), actual == null ? null : actual.backtrack());
+        }
+        assertNull(dawg.find(List.of("z")));
+
+        // already minimal, freezing the mapped net again finds nothing more to share
+        Path again = dir.resolve("again.dawg");
+        assertEquals(states, DawgNet.freeze(dawg, again, ValueCodec.STRING));
+        assertEquals(inserted, DawgNet.map(again, ValueCodec.STRING).paths().collect(Collectors.toSet()));
+    }
+
+    @Test
+    void sharedStateStillRemembersItsPath() throws IOException {
+        Net<String> net = new HashNet<>();
+        net.insert(List.of("x", "end"));
+        net.insert(List.of("y", "end"));
+        Path file = dir.resolve("small.dawg");
+        DawgNet.freeze(net, file, ValueCodec.STRING);
+        DawgNet<String> dawg = DawgNet.map(file, ValueCodec.STRING);
+        // both "end" nodes are one state, but not one node
+        Net.Node<String> viaX = dawg.find(List.of("x", "end"));
+        Net.Node<String> viaY = dawg.find(List.of("y", "end"));
+        assertEquals(List.of("x", "end"), viaX.backtrack());
+        assertEquals(List.of("y", "end"), viaY.backtrack());
+        assertNotEquals(viaX, viaY);
+        assertEquals(viaX, dawg.find(List.of("x", "end")));
+        assertThrows(UnsupportedOperationException.class, () -> dawg.insert(List.of("z")));
+        assertThrows(UnsupportedOperationException.class, () -> viaX.terminal(false));
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = dir.resolve("junk");
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> DawgNet.map(file, ValueCodec.STRING));
+    }
+
+    //static
+    private static int nodes(Net.Node<String> node) {
+        int n = 1;
+        for (Net.Node<String> child : node.children()) { n += nodes(child); }
+        return n;
+    }
+}
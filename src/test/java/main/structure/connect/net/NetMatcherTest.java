@@ -0,0 +1,84 @@
+package main.structure.connect.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NetMatcherTest {
+    @Test
+    void classicExample() {
+        Net<Character> net = new HashNet<>();
+        for (String word : List.of("he", "she", "his", "hers")) { net.insert(NetTest.chars(word)); }
+        NetMatcher<Character> matcher = new NetMatcher<>(net);
+        List<String> found = new ArrayList<>();
+        for (NetMatcher.Match<Character> m : matcher.matchAll(NetTest.chars("ushers").iterator())) {
+            found.add(m.start() + ":" + text(m.path()));
+        }
+        assertEquals(List.of("1:she", "2:he", "2:hers"), found);
+    }
+
+    @Test
+    void sameAsNaiveMatcher() {
+        Random random = new Random(23);
+        for (int round = 0; round < 50; round++) {
+            Net<Integer> net = round % 2 == 0 ? new HashNet<>() : new RadixNet<>();
+            List<List<Integer>> patterns = new ArrayList<>();
+            for (int p = 1 + random.nextInt(20); p > 0; p--) {
+                List<Integer> pattern = sequence(random, 1 + random.nextInt(5));
+                patterns.add(pattern);
+                net.insert(pattern);
+            }
+            List<Integer> text = sequence(random, 500);
+            NetMatcher<Integer> matcher = new NetMatcher<>(net);
+
+            List<String> expected = new ArrayList<>();
+            for (int end = 0; end < text.size(); end++) {
+                Set<List<Integer>> ending = new TreeSet<>(LONGER_FIRST);
+                for (List<Integer> pattern : patterns) {
+                    int start = end - pattern.size() + 1;
+                    if (start >= 0 && text.subList(start, end + 1).equals(pattern)) { ending.add(pattern); }
+                }
+                for (List<Integer> pattern : ending) { expected.add(end + ":" + pattern); }
+            }
+            List<String> actual = new ArrayList<>();
+            for (NetMatcher.Match<Integer> m : matcher.matchAll(text.toArray(Integer[]::new))) {
+                assertEquals(m.length(), m.path().size());
+                actual.add(m.end() + ":" + m.path());
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void sessionCarriesStateAcrossFeeds() {
+        Net<Character> net = new HashNet<>();
+        net.insert(NetTest.chars("abc"));
+        NetMatcher<Character> matcher = new NetMatcher<>(net);
+        NetMatcher<Character>.Session session = matcher.session();
+        assertTrue(session.feed('a').isEmpty());
+        assertTrue(session.feed('b').isEmpty());
+        List<NetMatcher.Match<Character>> matches = session.feed('c');
+        assertEquals(1, matches.size());
+        assertEquals(0, matches.get(0).start());
+        assertEquals(2, session.position());
+        session.reset();
+        assertTrue(session.feed('c').isEmpty());
+    }
+
+    //static
+    private static final Comparator<List<Integer>> LONGER_FIRST =
+            Comparator.<List<Integer>>comparingInt(List::size).reversed();
+
+    private static List<Integer> sequence(Random random, int length) {
+        List<Integer> values = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) { values.add(random.nextInt(3)); }
+        return values;
+    }
+    private static String text(List<Character> path) {
+        StringBuilder sb = new StringBuilder();
+        path.forEach(sb::append);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package main.structure.connect.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NetTest {
+    @Test
+    void pathApiOnHashNet() {
+        Net<Character> net = new HashNet<>();
+        for (String word : List.of("car", "cart", "care", "dog")) { net.insert(chars(word)); }
+        assertTrue(net.contains(chars("cart")));
+        assertFalse(net.contains(chars("ca")));
+        assertNotNull(net.find(chars("ca")));
+        assertEquals(chars("car"), net.longestPrefixMatch(chars("carbon")).backtrack());
+        assertNull(net.longestPrefixMatch(chars("do")));
+        assertEquals(Set.of("car", "cart", "care"), words(net.paths(chars("ca"))));
+        assertEquals(Set.of("car", "cart", "care", "dog"), words(net.paths()));
+    }
+
+    // written against the interface before paths were marked, it has to keep compiling and working
+    @Test
+    void nodeWithoutTerminalMark() {
+        LegacyNode root = new LegacyNode(null, null);
+        root.add('a').add('b');
+        root.add('c');
+        Net<Character> net = () -> root;
+        assertTrue(net.contains(chars("ab")));
+        assertFalse(net.contains(chars("a")));
+        assertEquals(Set.of("ab", "c"), words(net.paths()));
+        // an existing path can be walked and marked, a new one can't
+        assertSame(net.find(chars("ab")), net.insert(chars("ab")));
+        assertThrows(UnsupportedOperationException.class, () -> net.insert(chars("ax")));
+        assertThrows(UnsupportedOperationException.class, () -> net.insert(chars("a")));
+    }
+
+    //static
+    static List<Character> chars(String word) {
+        return word.chars().mapToObj(c -> (char) c).collect(Collectors.toList());
+    }
+    static Set<String> words(Stream<List<Character>> paths) {
+        return paths.map(p -> p.stream().map(String::valueOf).collect(Collectors.joining()))
+                .collect(Collectors.toSet());
+    }
+
+    //class
+    private static class LegacyNode implements Net.Node<Character> {
+        private final LegacyNode parent;
+        private Character value;
+        private final Map<Character, Net.Node<Character>> children = new LinkedHashMap<>();
+
+        LegacyNode(LegacyNode parent, Character value) {
+            this.parent = parent;
+            this.value = value;
+        }
+
+        LegacyNode add(char c) {
+            LegacyNode child = new LegacyNode(this, c);
+            children.put(c, child);
+            return child;
+        }
+
+        @Override public Net.Node<Character> parent() { return parent; }
+        @Override public Character value() { return value; }
+        @Override public void value(Character value) { this.value = value; }
+        @Override public boolean isStart() { return parent == null; }
+        @Override public boolean isEnd() { return children.isEmpty(); }
+        @Override public Collection<Net.Node<Character>> children() { return children.values(); }
+        @Override public Net.Node<Character> getChild(Character value) { return children.get(value); }
+    }
+}
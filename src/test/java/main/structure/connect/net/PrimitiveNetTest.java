@@ -0,0 +1,114 @@
+package main.structure.connect.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrimitiveNetTest {
+    @Test
+    void sameAsHashNetAcrossLayouts() {
+        Random random = new Random(19);
+        IntNet net = new IntNet();
+        // every inserted path, the edges of a net are exactly their prefixes
+        Set<List<Integer>> inserted = new HashSet<>();
+        HashNet<Integer> reference = new HashNet<>();
+        boolean hashed = false;
+        boolean sortedAgain = false;
+        for (int cycle = 0; cycle < 4; cycle++) {
+            // grow the origin well past SORTED_LIMIT, then cut it back below the shrink point
+            for (int round = 0; round < 400; round++) {
+                List<Integer> path = path(random);
+                net.insert(path);
+                reference.insert(path);
+                inserted.add(path);
+                if (round % 8 == 0) { compare(net, reference, inserted, random); }
+            }
+            assertTrue(net.origin().childCount() > PrimitiveNet.SORTED_LIMIT);
+            hashed |= net.origin().hashed();
+            while (net.origin().childCount() > 2) {
+                PrimitiveNet.PrimitiveNode<Integer> origin = net.origin();
+                if (random.nextInt(3) == 0) {
+                    // re-key an edge, a remove and an insert in the same node
+                    List<Integer> keys = keys(origin);
+                    int from = keys.get(random.nextInt(keys.size()));
+                    int to = 1000 + random.nextInt(64);
+                    if (origin.getChild(to) != null) { continue; }
+                    origin.getChild(from).value(to);
+                    inserted = inserted.stream()
+                            .map(p -> p.get(0) == from ? rekey(p, to) : p)
+                            .collect(Collectors.toSet());
+                } else {
+                    List<Integer> keys = keys(origin);
+                    int key = keys.get(random.nextInt(keys.size()));
+                    assertNotNull(origin.disown(key));
+                    assertNull(origin.getChild(key));
+                    inserted.removeIf(p -> p.get(0) == key);
+                }
+                reference = rebuild(inserted);
+                compare(net, reference, inserted, random);
+            }
+            sortedAgain |= hashed && !net.origin().hashed();
+        }
+        assertTrue(hashed && sortedAgain, "the origin didn't switch layouts both ways");
+        assertNull(net.origin().disown(-5));
+    }
+
+    @Test
+    void typedNets() {
+        CharNet chars = new CharNet();
+        for (String word : List.of("tea", "ten", "to", "inn")) { chars.insert(word); }
+        assertTrue(chars.contains("ten"));
+        assertFalse(chars.contains("te"));
+        assertEquals('n', chars.longestPrefixMatch("inner").key());
+        assertEquals(Set.of("tea", "ten", "to", "inn"), NetTest.words(chars.paths()));
+
+        LongNet longs = new LongNet();
+        long big = 1L << 40;
+        longs.insert(new long[] {big, -big, 7});
+        assertTrue(longs.contains(new long[] {big, -big, 7}));
+        assertFalse(longs.contains(new long[] {big & 0xFFFF_FFFFL, -big, 7}));
+        assertEquals(List.of(big, -big, 7L), longs.find(new long[] {big, -big, 7}).backtrack());
+    }
+
+    //static
+    private static List<Integer> path(Random random) {
+        List<Integer> path = new ArrayList<>();
+        path.add(random.nextInt(48));
+        for (int n = random.nextInt(3); n > 0; n--) { path.add(random.nextInt(12)); }
+        return path;
+    }
+    private static List<Integer> rekey(List<Integer> path, int first) {
+        List<Integer> copy = new ArrayList<>(path);
+        copy.set(0, first);
+        return copy;
+    }
+    private static List<Integer> keys(Net.Node<Integer> node) {
+        return node.children().stream().map(Net.Node::value).collect(Collectors.toList());
+    }
+    private static HashNet<Integer> rebuild(Set<List<Integer>> paths) {
+        HashNet<Integer> net = new HashNet<>();
+        paths.forEach(net::insert);
+        return net;
+    }
+    private static void compare(IntNet net, HashNet<Integer> reference, Set<List<Integer>> inserted, Random random) {
+        assertEquals(inserted, net.paths().collect(Collectors.toSet()));
+        assertEquals(reference.origin().children().size(), net.origin().childCount());
+        for (int i = 0; i < 40; i++) {
+            List<Integer> path = random.nextInt(4) == 0 ? path(random)
+                    : new ArrayList<>(inserted.stream().skip(random.nextInt(Math.max(1, inserted.size())))
+                    .findFirst().orElse(List.of(1)));
+            if (random.nextBoolean()) { path.add(random.nextInt(12)); }
+            assertEquals(reference.contains(path), net.contains(path), path::toString);
+            Net.Node<Integer> expected = reference.find(path);
+            Net.Node<Integer> actual = net.find(path);
+            assertEquals(expected == null, actual == null, path::toString);
+            if (expected != null) { assertEquals(expected.children().size(), actual.children().size()); }
+            Net.Node<Integer> h = reference.longestPrefixMatch(path);
+            Net.Node<Integer> p = net.longestPrefixMatch(path);
+            assertEquals(h == null ? null : h.backtrack(), p == null ? null : p.backtrack());
+        }
+    }
+}
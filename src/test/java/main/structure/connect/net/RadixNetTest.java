@@ -0,0 +1,149 @@
+package main.structure.connect.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RadixNetTest {
+    // a cursor held across splits of its own segment
+    @Test
+    void heldCursorAfterSplits() {
+        RadixNet<Integer> net = new RadixNet<>();
+        Net.Node<Integer> held = net.insert(new Integer[] {0, 0, 0, 0});
+        assertTrue(held.isTerminal());
+        net.insert(new Integer[] {1, 1, 1, 0, 0});
+        net.insert(new Integer[] {0, 1, 1});
+        assertTrue(held.isTerminal());
+        assertTrue(held.isEnd());
+        held.terminal(true);
+        assertEquals(List.of(0, 0, 0, 0), held.backtrack());
+        assertTrue(net.contains(new Integer[] {0, 0, 0, 0}));
+        assertTrue(net.contains(new Integer[] {0, 1, 1}));
+
+        // marking inside a segment splits it, the part below survives
+        Net.Node<Integer> inner = net.find(new Integer[] {1, 1});
+        inner.terminal(true);
+        assertTrue(net.contains(new Integer[] {1, 1}));
+        assertTrue(net.contains(new Integer[] {1, 1, 1, 0, 0}));
+    }
+
+    @Test
+    void cursorHashSurvivesSplit() {
+        RadixNet<Integer> net = new RadixNet<>();
+        Net.Node<Integer> end = net.insert(new Integer[] {1, 2, 3, 4, 5});
+        Net.Node<Integer> middle = net.find(new Integer[] {1, 2, 3});
+        Map<Net.Node<Integer>, String> map = new HashMap<>();
+        map.put(end, "end");
+        map.put(middle, "middle");
+        net.insert(new Integer[] {1, 2, 9});
+        net.insert(new Integer[] {1, 2, 3, 4, 7});
+        assertEquals("end", map.get(end));
+        assertEquals("middle", map.get(middle));
+        assertEquals("end", map.get(net.find(new Integer[] {1, 2, 3, 4, 5})));
+        assertEquals("middle", map.get(net.find(new Integer[] {1, 2, 3})));
+        assertEquals(end, net.find(new Integer[] {1, 2, 3, 4, 5}));
+    }
+
+    @Test
+    void sameAsHashNet() {
+        Random random = new Random(22);
+        RadixNet<Integer> radix = new RadixNet<>();
+        HashNet<Integer> hash = new HashNet<>();
+        List<Net.Node<Integer>> held = new ArrayList<>();
+        List<List<Integer>> heldPaths = new ArrayList<>();
+        for (int round = 0; round < 3000; round++) {
+            List<Integer> path = path(random);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> {
+                    held.add(radix.insert(path));
+                    heldPaths.add(path);
+                    hash.insert(path);
+                }
+                case 2 -> {
+                    // mark or unmark a node that may sit inside a segment
+                    Net.Node<Integer> r = radix.find(path);
+                    Net.Node<Integer> h = hash.find(path);
+                    assertEquals(h == null, r == null, path::toString);
+                    if (r != null) {
+                        boolean mark = random.nextBoolean();
+                        r.terminal(mark);
+                        h.terminal(mark);
+                    }
+                }
+                default -> {
+                    assertEquals(hash.contains(path), radix.contains(path), path::toString);
+                    Net.Node<Integer> h = hash.longestPrefixMatch(path);
+                    Net.Node<Integer> r = radix.longestPrefixMatch(path);
+                    assertEquals(h == null ? null : h.backtrack(), r == null ? null : r.backtrack());
+                }
+            }
+            if (!held.isEmpty()) {
+                int i = random.nextInt(held.size());
+                Net.Node<Integer> cursor = held.get(i);
+                assertEquals(heldPaths.get(i), cursor.backtrack());
+                assertEquals(hash.find(heldPaths.get(i)).isTerminal(), cursor.isTerminal());
+                assertEquals(hash.find(heldPaths.get(i)).isEnd(), cursor.isEnd());
+            }
+        }
+        assertEquals(paths(hash), paths(radix));
+        assertTrue(radix.segmentCount() < count(hash.origin()));
+    }
+
+    // the whole path walks skip the nodes in between, they have to end where stepping node by node does
+    @Test
+    void pathWalkSameAsSteps() {
+        Random random = new Random(221);
+        RadixNet<Integer> net = new RadixNet<>();
+        RadixNet<Integer> stepped = new RadixNet<>();
+        for (int round = 0; round < 2000; round++) {
+            List<Integer> path = path(random);
+            Integer[] array = path.toArray(new Integer[0]);
+            if (random.nextBoolean()) {
+                Net.Node<Integer> end = random.nextBoolean() ? net.insert(path) : net.insert(array);
+                Net.Node<Integer> node = stepped.origin();
+                for (Integer value : path) { node = node.extend(value); }
+                node.terminal(true);
+                assertEquals(path, end.backtrack());
+                assertTrue(end.isTerminal());
+            }
+            Net.Node<Integer> node = net.origin();
+            Net.Node<Integer> match = null;
+            for (Integer value : path) {
+                node = node.getChild(value);
+                if (node == null) { break; }
+                if (node.isTerminal()) { match = node; }
+            }
+            assertEquals(node, net.find(path));
+            assertEquals(node, net.find(array));
+            assertEquals(node != null && node.isTerminal(), net.contains(path));
+            assertEquals(node != null && node.isTerminal(), net.contains(array));
+            assertEquals(match, net.longestPrefixMatch(path));
+            assertEquals(match, net.longestPrefixMatch(array));
+        }
+        assertEquals(paths(stepped), paths(net));
+        assertEquals(stepped.segmentCount(), net.segmentCount());
+        assertNull(net.longestPrefixMatch(new Integer[0]));
+        net.origin().terminal(true);
+        assertEquals(net.origin(), net.longestPrefixMatch(new Integer[] {7}));
+        assertTrue(net.contains(List.of()));
+    }
+
+    //static
+    private static List<Integer> path(Random random) {
+        // small alphabet and shared prefixes, so paths split each other's segments
+        List<Integer> path = new ArrayList<>();
+        for (int n = 1 + random.nextInt(8); n > 0; n--) { path.add(random.nextInt(3)); }
+        return path;
+    }
+    private static Set<List<Integer>> paths(Net<Integer> net) {
+        return net.paths().collect(Collectors.toSet());
+    }
+    private static int count(Net.Node<Integer> node) {
+        int n = 1;
+        for (Net.Node<Integer> child : node.children()) { n += count(child); }
+        return n;
+    }
+}
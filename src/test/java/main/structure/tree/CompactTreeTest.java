@@ -0,0 +1,97 @@
+package main.structure.tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactTreeTest {
+    @Test
+    void sameAsConnected() {
+        Random random = new Random(11);
+        CompactTree<Integer> tree = new CompactTree<>(0);
+        Connected<Integer> mirror = new Connected<>(0);
+        // live compact index and its Connected twin, reachable from the root
+        Map<Integer, Connected<Integer>> nodes = new HashMap<>(Map.of(tree.root(), mirror));
+        List<Integer> live = new ArrayList<>(List.of(tree.root()));
+        for (int round = 0; round < 20_000; round++) {
+            int node = live.get(random.nextInt(live.size()));
+            int op = random.nextInt(10);
+            if (op < 6 || node == tree.root()) {
+                int child = tree.adopt(node, round);
+                Connected<Integer> twin = new Connected<>(round);
+                nodes.get(node).adopt(twin);
+                assertFalse(nodes.containsKey(child), "slot handed out twice");
+                nodes.put(child, twin);
+                live.add(child);
+            } else if (op < 8) {
+                tree.value(node, -round);
+                nodes.get(node).value(-round);
+            } else {
+                List<Integer> gone = new ArrayList<>();
+                tree.preOrder(node, gone::add);
+                nodes.get(node).ascent().orElseThrow().disown(nodes.get(node));
+                tree.remove(node);
+                for (int i : gone) { nodes.remove(i); }
+                live.removeAll(gone);
+                assertThrows(IndexOutOfBoundsException.class, () -> tree.value(node));
+            }
+            int probe = live.get(random.nextInt(live.size()));
+            Connected<Integer> twin = nodes.get(probe);
+            assertEquals(twin.value(), tree.value(probe));
+            assertEquals(twin.getGeneration(), tree.getGeneration(probe));
+            assertEquals(twin.child().size(), tree.childCount(probe));
+            int parent = tree.parent(probe);
+            assertEquals(twin.ascent().orElse(null), parent == CompactTree.NONE ? null : nodes.get(parent));
+        }
+        assertEquals(live.size(), tree.size());
+        assertEquals(mirror.subtreeSize(), tree.size());
+        assertEquals(shape(mirror), shape(tree.toConnected()));
+        tree.trimToSize();
+        assertEquals(shape(mirror), shape(tree.toConnected()));
+        // the free list still works once the arrays are cut down
+        for (int i = 0; i < 100; i++) {
+            int node = live.get(random.nextInt(live.size()));
+            int child = tree.adopt(node, i);
+            Connected<Integer> twin = new Connected<>(i);
+            nodes.get(node).adopt(twin);
+            nodes.put(child, twin);
+            live.add(child);
+        }
+        assertEquals(shape(mirror), shape(tree.toConnected()));
+    }
+
+    @Test
+    void removeChurnReusesSlots() {
+        CompactTree<String> tree = new CompactTree<>("root");
+        int branch = tree.adopt(tree.root(), "branch");
+        int highest = 0;
+        for (int round = 0; round < 100_000; round++) {
+            int a = tree.adopt(branch, "a");
+            int b = tree.adopt(a, "b");
+            highest = Math.max(highest, Math.max(a, b));
+            tree.remove(a);
+        }
+        assertEquals(2, tree.size());
+        assertTrue(highest < 4, "slots grew to " + highest);
+
+        // disown keeps the subtree and its slots
+        int kept = tree.adopt(branch, "kept");
+        tree.adopt(kept, "below");
+        tree.disown(kept);
+        assertEquals(4, tree.size());
+        assertEquals("below", tree.value(tree.firstChild(kept)));
+        assertThrows(IllegalArgumentException.class, () -> tree.remove(tree.root()));
+    }
+
+    //static
+    // children sorted, a Connected child set has no order of its own
+    private static String shape(Connected<Integer> node) {
+        return node.value() + node.child().stream()
+                .map(CompactTreeTest::shape)
+                .sorted()
+                .collect(Collectors.joining(",", "(", ")"));
+    }
+}
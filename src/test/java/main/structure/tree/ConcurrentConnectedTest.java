@@ -0,0 +1,162 @@
+package main.structure.tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentConnectedTest {
+    @Test
+    void snapshotIsConsistentWhileWritersMoveLeaves() throws InterruptedException {
+        ConcurrentConnected<Integer> root = new ConcurrentConnected<>(-1);
+        List<ConcurrentConnected<Integer>> inner = new ArrayList<>();
+        List<ConcurrentConnected<Integer>> leaves = new ArrayList<>();
+        Map<ConcurrentConnected<Integer>, Integer> leafIndex = new HashMap<>();
+        for (int i = 0; i < 8; i++) {
+            ConcurrentConnected<Integer> n = new ConcurrentConnected<>(-2);
+            root.adopt(n);
+            inner.add(n);
+        }
+        for (int i = 0; i < 2000; i++) {
+            ConcurrentConnected<Integer> leaf = new ConcurrentConnected<>(i);
+            inner.get(i % inner.size()).adopt(leaf);
+            leafIndex.put(leaf, leaves.size());
+            leaves.add(leaf);
+        }
+        int expected = 1 + inner.size() + leaves.size();
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 3; w++) {
+            Thread t = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    while (!stop.get()) {
+                        ConcurrentConnected<Integer> leaf = leaves.get(random.nextInt(leaves.size()));
+                        inner.get(random.nextInt(inner.size())).adopt(leaf);
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            writers.add(t);
+            t.start();
+        }
+        // one thread writes 2000, 2001, ... round the leaves, write c goes to leaf c % 2000.
+        // a snapshot whose newest value is k holds every write up to k and none after it
+        Thread counter = new Thread(() -> {
+            try {
+                for (int c = leaves.size(); !stop.get(); c++) { leaves.get(c % leaves.size()).value(c); }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        writers.add(counter);
+        counter.start();
+        try {
+            for (int round = 0; round < 100; round++) {
+                ConcurrentConnected.Snapshot<Integer> snapshot = root.snapshot();
+                assertEquals(expected, snapshot.size());
+                Set<ConcurrentConnected<Integer>> seen = new HashSet<>();
+                int newest = snapshot.values().stream().mapToInt(Integer::intValue).max().orElseThrow();
+                for (int i = 0; i < snapshot.size(); i++) {
+                    assertTrue(seen.add(snapshot.node(i)), "node twice in one snapshot");
+                    Integer leaf = leafIndex.get(snapshot.node(i));
+                    if (leaf != null) {
+                        int expectedValue = newest - Math.floorMod(newest - leaf, leaves.size());
+                        assertEquals(expectedValue, snapshot.value(i), "leaf " + leaf);
+                    }
+                }
+            }
+        } finally {
+            stop.set(true);
+            for (Thread t : writers) { t.join(); }
+        }
+        assertNull(failure.get());
+        assertEquals(expected, root.snapshot().size());
+    }
+
+    @Test
+    void snapshotKeepsOldValues() {
+        ConcurrentConnected<String> root = new ConcurrentConnected<>("r");
+        ConcurrentConnected<String> a = new ConcurrentConnected<>("a");
+        root.adopt(a);
+        ConcurrentConnected.Snapshot<String> before = root.snapshot();
+        a.value("b");
+        root.disown(a);
+        assertEquals(List.of("r", "a"), before.values());
+        assertEquals(List.of("r"), root.snapshot().values());
+        assertEquals("b", a.value());
+    }
+
+    @Test
+    void openReadKeepsWritesConstantTime() {
+        ConcurrentConnected<Integer> root = new ConcurrentConnected<>(0);
+        root.adopt(1);
+        ConcurrentConnected<Integer> hot = root.child().get(0);
+        ConcurrentConnected<Integer> other = new ConcurrentConnected<>(0);
+        int writes = 200_000;
+        for (int i = 0; i < writes; i++) { hot.value(i); }
+        long start = System.nanoTime();
+        for (int i = 0; i < writes; i++) { hot.value(i); }
+        long free = System.nanoTime() - start;
+        assertEquals(0, hot.history());
+
+        long pinned;
+        try (ConcurrentConnected.Reader reader = root.read()) {
+            pinned = System.nanoTime();
+            for (int i = 0; i < writes; i++) {
+                hot.value(i);
+                other.value(i);
+            }
+            pinned = System.nanoTime() - pinned;
+            // everything since the read is kept, tail trims stay amortized
+            assertTrue(hot.history() >= writes, () -> "kept " + hot.history());
+            // another tree doesn't keep history for it
+            assertEquals(0, other.history());
+        }
+        // twice the writes of the free run, quadratic copying would be orders of magnitude off
+        assertTrue(pinned < 20 * free + 1_000_000_000L, () -> "free " + free / 1_000_000 + " ms");
+        hot.value(0);
+        assertEquals(0, hot.history());
+    }
+
+    @Test
+    void readFollowsNodesIntoAnotherTree() {
+        ConcurrentConnected<String> a = new ConcurrentConnected<>("a");
+        a.adopt("a1");
+        ConcurrentConnected<String> a1 = a.child().get(0);
+        ConcurrentConnected<String> b = new ConcurrentConnected<>("b");
+        try (ConcurrentConnected.Reader reader = a.read()) {
+            // a1 joins b's tree, writes to it there still keep what a's read needs
+            b.adopt(a1);
+            for (int i = 0; i < 100; i++) { a1.value("b" + i); }
+            assertTrue(a1.history() > 0);
+        }
+        assertEquals(List.of("a"), a.snapshot().values());
+        assertEquals(List.of("b", "b99"), b.snapshot().values());
+        a1.value("x");
+        assertEquals(0, a1.history());
+    }
+
+    @Test
+    void noCycles() {
+        ConcurrentConnected<Integer> a = new ConcurrentConnected<>(0);
+        ConcurrentConnected<Integer> b = new ConcurrentConnected<>(1);
+        a.adopt(b);
+        b.adopt(2);
+        assertThrows(IllegalArgumentException.class, () -> b.adopt(a));
+        assertTrue(a.isAncestorOf(b.child().get(0)));
+        assertEquals(2, b.child().get(0).getGeneration());
+    }
+}
@@ -0,0 +1,167 @@
+package main.structure.tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectedTest {
+    @Test
+    void graftKeepsSubtree() {
+        Connected<Integer> a = new Connected<>(0);
+        Connected<Integer> b = new Connected<>(1);
+        Connected<Integer> moved = new Connected<>(2);
+        moved.adopt(3).adopt(4);
+        moved.child().iterator().next().adopt(5);
+        a.adopt(moved);
+        assertEquals(5, a.subtreeSize());
+
+        b.adopt(moved);
+        assertTrue(a.isChildless());
+        assertEquals(1, a.subtreeSize());
+        assertEquals(5, b.subtreeSize());
+        assertSame(b, moved.ascent().orElseThrow());
+        assertEquals(4, moved.preOrder().count());
+    }
+
+    @Test
+    void disownedSubtreeIsCollectable() {
+        Connected<Integer> parent = new Connected<>(0);
+        List<WeakReference<Connected<Integer>>> dropped = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            // made through the parent, so its children are stored the way the parent's are
+            Connected<Integer> child = parent.adopt(i).child().iterator().next();
+            child.adopt(-i);
+            dropped.add(new WeakReference<>(child));
+            dropped.add(new WeakReference<>(child.child().iterator().next()));
+            parent.disown(child);
+        }
+        assertTrue(parent.isChildless());
+        for (int attempt = 0; attempt < 20 && dropped.stream().anyMatch(r -> r.get() != null); attempt++) {
+            System.gc();
+        }
+        assertTrue(dropped.stream().allMatch(r -> r.get() == null), "disowned nodes still reachable");
+    }
+
+    @Test
+    void disownKeepsChildsOwnSubtree() {
+        Connected<String> parent = new Connected<>("p");
+        Connected<String> child = new Connected<>("c");
+        parent.adopt(child);
+        child.adopt("g1").adopt("g2");
+        parent.disown(child);
+        assertTrue(child.isOrphan());
+        assertEquals(3, child.subtreeSize());
+        assertEquals(1, parent.subtreeSize());
+    }
+
+    @Test
+    void cachedGenerationFollowsMoves() {
+        Random random = new Random(15);
+        List<Connected<Integer>> nodes = new ArrayList<>();
+        // a few separate trees, moves inside one and between them
+        for (int i = 0; i < 4; i++) { nodes.add(new Connected<>(i)); }
+        for (int round = 0; round < 5000; round++) {
+            Connected<Integer> a = nodes.get(random.nextInt(nodes.size()));
+            int op = random.nextInt(10);
+            if (op < 5) {
+                nodes.add(a.adopt(nodes.size()).child().stream()
+                        .filter(c -> c.value() == nodes.size()).findFirst().orElseThrow());
+            } else if (op < 8) {
+                Connected<Integer> b = nodes.get(random.nextInt(nodes.size()));
+                if (b != a && !b.isAncestorOf(a)) { a.adopt(b); }
+            } else {
+                a.ascent().ifPresent(p -> p.disown(a));
+            }
+            Connected<Integer> probe = nodes.get(random.nextInt(nodes.size()));
+            assertEquals(walk(probe), probe.getGeneration());
+            assertEquals(probe.preOrder().count(), probe.subtreeSize());
+            Connected<Integer> other = nodes.get(random.nextInt(nodes.size()));
+            assertEquals(probe != other && other.slimTree(true).contains(probe), probe.isAncestorOf(other));
+        }
+        for (Connected<Integer> n : nodes) {
+            assertEquals(walk(n), n.getGeneration());
+            assertEquals(n.preOrder().count(), n.subtreeSize());
+        }
+    }
+
+    @Test
+    void sizeOfWideRootWithoutRecount() {
+        Connected<Integer> root = new Connected<>(0);
+        for (int i = 0; i < 100_000; i++) { root.adopt(i); }
+        List<Connected<Integer>> children = new ArrayList<>(root.child());
+        // a read after every adopt used to sum all 100k children again
+        assertTimeout(Duration.ofSeconds(10), () -> {
+            for (int round = 0; round < 5000; round++) {
+                children.get(round).adopt(-round);
+                assertEquals(100_001 + round + 1, root.subtreeSize());
+            }
+        });
+        Connected<Integer> holder = new Connected<>(-1);
+        holder.adopt(children.get(0));
+        assertEquals(2, holder.child().iterator().next().subtreeSize());
+        assertEquals(3, holder.subtreeSize());
+        assertEquals(100_001 + 5000 - 2, root.subtreeSize());
+    }
+
+    @Test
+    void generationFromParallelReaders() {
+        Connected<Integer> root = new Connected<>(0);
+        List<Connected<Integer>> open = new ArrayList<>(List.of(root));
+        for (int i = 1; i < 20000; i++) {
+            Connected<Integer> parent = open.get(i / 3);
+            parent.adopt(i);
+            open.add(parent.child().stream().filter(c -> c.value() != null && open.size() == c.value()).findFirst()
+                    .orElseThrow());
+        }
+        // invalidate every cache, then let the readers fill them at once
+        Connected<Integer> holder = new Connected<>(-1);
+        holder.adopt(root);
+        Map<Connected<Integer>, Integer> seen = new ConcurrentHashMap<>();
+        root.childLaborParallel(c -> seen.put(c, c.getGeneration()));
+        for (Connected<Integer> n : open) { assertEquals(walk(n), seen.get(n)); }
+    }
+
+    @Test
+    void keyFilterThroughIndexMatchesScan() {
+        Connected<Integer> root = new Connected<>(0);
+        for (int i = 0; i < 100; i++) { root.adopt(i); }
+        AtomicInteger calls = new AtomicInteger();
+        Function<Integer, Integer> key = v -> {
+            calls.incrementAndGet();
+            return v % 10;
+        };
+        KeyFilter<Integer, Integer> filter = KeyFilter.range(key, 3, 5);
+        List<Connected<Integer>> scanned = root.multiLayerFilter(List.of(filter), false);
+        root.multiLayerFilter(List.of(filter), false);
+        // a query tests every child and leaves no index behind
+        assertEquals(200, calls.get());
+        assertEquals(20, scanned.size());
+
+        root.index(key);
+        calls.set(0);
+        List<Connected<Integer>> indexed = root.multiLayerFilter(List.of(filter), false);
+        assertEquals(0, calls.get());
+        assertEquals(new HashSet<>(scanned), new HashSet<>(indexed));
+
+        Connected<Integer> moved = indexed.get(0);
+        moved.value(9);
+        assertFalse(root.multiLayerFilter(List.of(filter), false).contains(moved));
+        assertTrue(root.multiLayerFilter(List.of(KeyFilter.equal(key, 9)), false).contains(moved));
+    }
+
+    //static
+    private static int walk(Connected<?> node) {
+        return node.slimTree(true).size() - 1;
+    }
+}
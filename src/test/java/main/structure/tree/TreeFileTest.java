@@ -0,0 +1,54 @@
+package main.structure.tree;
+
+import main.structure.ValueCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TreeFileTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTrip() throws IOException {
+        Random random = new Random(18);
+        Connected<String> root = new Connected<>("root");
+        List<Connected<String>> nodes = new ArrayList<>(List.of(root));
+        for (int i = 0; i < 2000; i++) {
+            Connected<String> parent = nodes.get(random.nextInt(nodes.size()));
+            Connected<String> child = new Connected<>(i % 7 == 0 ? null : "v" + i);
+            parent.adopt(child);
+            nodes.add(child);
+        }
+        Path file = dir.resolve("tree.bin");
+        TreeFile.write(root, file, ValueCodec.STRING);
+
+        assertEquals(shape(root), shape(TreeFile.read(file, ValueCodec.STRING)));
+
+        TreeFile.Mapped<String> mapped = TreeFile.map(file, ValueCodec.STRING);
+        assertEquals(root.subtreeSize(), mapped.size());
+        assertEquals(shape(root), shape(mapped.toConnected()));
+        for (int node = 0; node < mapped.size(); node++) {
+            int parent = mapped.parent(node);
+            if (parent >= 0) { assertTrue(parent < node); }
+            assertEquals(shape(mapped.toConnected(node)), shape(mapped.node(node).toConnected()));
+        }
+    }
+
+    //static
+    // children sorted, a child set has no order of its own
+    private static String shape(Connected<String> node) {
+        return node.value() + node.child().stream()
+                .map(TreeFileTest::shape)
+                .sorted()
+                .collect(Collectors.joining(",", "(", ")"));
+    }
+}